@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Compact tracking of in-flight observations, used in place of a long task timer sample
+ * per observation. Keeps one {@link ActiveTaskTracker} per observation name and low
+ * cardinality key-values, and exposes it through {@code <name>.active.*} meters.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class ActiveObservations {
+
+	private final ConcurrentMap<String, ConcurrentMap<KeyValues, ActiveTaskTracker>> trackers = new ConcurrentHashMap<>();
+
+	private final int maxActive;
+
+	private final double[] percentiles;
+
+	/**
+	 * Create a new {@link ActiveObservations} instance.
+	 * @param maxActive the maximum number of tracked in-flight observations per name and
+	 * key-values
+	 * @param percentiles the percentiles of the in-flight durations to publish
+	 */
+	public ActiveObservations(int maxActive, List<Double> percentiles) {
+		this.maxActive = maxActive;
+		this.percentiles = percentiles.stream().mapToDouble(Double::doubleValue).toArray();
+	}
+
+	ActiveTaskTracker getTracker(MeterRegistry meterRegistry, String name, KeyValues keyValues) {
+		ConcurrentMap<KeyValues, ActiveTaskTracker> byKeyValues = this.trackers.get(name);
+		if (byKeyValues == null) {
+			byKeyValues = this.trackers.computeIfAbsent(name, (key) -> new ConcurrentHashMap<>());
+		}
+		ActiveTaskTracker tracker = byKeyValues.get(keyValues);
+		return (tracker != null) ? tracker : byKeyValues.computeIfAbsent(keyValues,
+				(key) -> createTracker(meterRegistry, new TrackerKey(name, key)));
+	}
+
+	private ActiveTaskTracker createTracker(MeterRegistry meterRegistry, TrackerKey key) {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(meterRegistry.config().clock(), this.maxActive,
+				this.percentiles);
+		Tags tags = ObservationTags.of(key.keyValues());
+		String prefix = key.name() + ".active";
+		Gauge.builder(prefix + ".tasks", tracker, ActiveTaskTracker::activeTasks).tags(tags)
+				.description("Number of in-flight observations").register(meterRegistry);
+		TimeGauge.builder(prefix + ".duration", tracker, TimeUnit.NANOSECONDS, (t) -> t.snapshot().duration())
+				.tags(tags).description("Summed duration of the in-flight observations").register(meterRegistry);
+		TimeGauge.builder(prefix + ".max", tracker, TimeUnit.NANOSECONDS, (t) -> t.snapshot().max()).tags(tags)
+				.description("Duration of the oldest in-flight observation").register(meterRegistry);
+		for (int i = 0; i < this.percentiles.length; i++) {
+			int index = i;
+			TimeGauge
+					.builder(prefix + ".percentile", tracker, TimeUnit.NANOSECONDS,
+							(t) -> t.snapshot().percentile(index))
+					.tags(tags).tag("phi", String.valueOf(this.percentiles[i]))
+					.description("Percentile of the durations of the in-flight observations").register(meterRegistry);
+		}
+		FunctionCounter.builder(prefix + ".dropped", tracker, ActiveTaskTracker::droppedTasks).tags(tags)
+				.description("Observations not tracked because the tracker was full").register(meterRegistry);
+		return tracker;
+	}
+
+	void forEach(BiConsumer<TrackerKey, ActiveTaskTracker> action) {
+		this.trackers.forEach((name, byKeyValues) -> byKeyValues
+				.forEach((keyValues, tracker) -> action.accept(new TrackerKey(name, keyValues), tracker)));
+	}
+
+	record TrackerKey(String name, KeyValues keyValues) {
+
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.common.KeyValue;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@link Endpoint @Endpoint} to expose the oldest in-flight observations tracked by
+ * {@link ActiveObservations}. The durations are taken from the same snapshot as the
+ * {@code <name>.active.*} gauges and can be up to a second old.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+@Endpoint(id = "activeobservations")
+public class ActiveObservationsEndpoint {
+
+	private final ActiveObservations activeObservations;
+
+	/**
+	 * Create a new {@link ActiveObservationsEndpoint} instance.
+	 * @param activeObservations the tracker of in-flight observations
+	 */
+	public ActiveObservationsEndpoint(ActiveObservations activeObservations) {
+		this.activeObservations = activeObservations;
+	}
+
+	@ReadOperation
+	public ActiveObservationsDescriptor activeObservations() {
+		List<ActiveObservationDescriptor> observations = new ArrayList<>();
+		this.activeObservations.forEach((key, tracker) -> {
+			long[] oldest = tracker.snapshot().oldest();
+			if (oldest.length > 0) {
+				observations.add(new ActiveObservationDescriptor(key, tracker, oldest));
+			}
+		});
+		observations.sort(Comparator.comparing((ActiveObservationDescriptor observation) -> observation.oldest.get(0))
+				.reversed());
+		return new ActiveObservationsDescriptor(observations);
+	}
+
+	/**
+	 * Description of the in-flight observations.
+	 */
+	public static final class ActiveObservationsDescriptor {
+
+		private final List<ActiveObservationDescriptor> observations;
+
+		private ActiveObservationsDescriptor(List<ActiveObservationDescriptor> observations) {
+			this.observations = observations;
+		}
+
+		public List<ActiveObservationDescriptor> getObservations() {
+			return this.observations;
+		}
+
+	}
+
+	/**
+	 * Description of the in-flight observations with the same name and key-values.
+	 */
+	public static final class ActiveObservationDescriptor {
+
+		private final String name;
+
+		private final Map<String, String> keyValues = new LinkedHashMap<>();
+
+		private final long activeTasks;
+
+		private final long droppedTasks;
+
+		private final List<Duration> oldest = new ArrayList<>();
+
+		private ActiveObservationDescriptor(ActiveObservations.TrackerKey key, ActiveTaskTracker tracker,
+				long[] oldest) {
+			this.name = key.name();
+			for (KeyValue keyValue : key.keyValues()) {
+				this.keyValues.put(keyValue.getKey(), keyValue.getValue());
+			}
+			this.activeTasks = tracker.activeTasks();
+			this.droppedTasks = tracker.droppedTasks();
+			for (long duration : oldest) {
+				this.oldest.add(Duration.ofNanos(duration));
+			}
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Map<String, String> getKeyValues() {
+			return this.keyValues;
+		}
+
+		public long getActiveTasks() {
+			return this.activeTasks;
+		}
+
+		public long getDroppedTasks() {
+			return this.droppedTasks;
+		}
+
+		public List<Duration> getOldest() {
+			return this.oldest;
+		}
+
+	}
+
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Clock;
+
+/**
+ * Tracks the start times of in-flight tasks in open-addressed primitive slots instead of
+ * one sample object per task. Slots are allocated in segments of doubling size, starting
+ * with {@link #INITIAL_SEGMENT_SIZE} slots, that are only added when the existing ones
+ * are crowded. A tracker therefore starts at a few hundred bytes and grows with the peak
+ * number of concurrent tasks by eight bytes per task. Tasks are placed in the smallest
+ * segments first, so that the last segment drains once the load drops and is released on
+ * the next snapshot. Durations, the oldest tasks and percentiles are computed from a
+ * {@link Snapshot} that is taken by scanning the slots at most once per
+ * {@link #SNAPSHOT_TTL}, and shared by every reader in between, such as the gauges read
+ * on a single scrape.
+ *
+ * @author Micrometer Team
+ */
+final class ActiveTaskTracker {
+
+	/**
+	 * Slot returned by {@link #start()} when the tracker is full.
+	 */
+	static final int NO_SLOT = -1;
+
+	/**
+	 * Number of oldest tasks kept in a {@link Snapshot}.
+	 */
+	static final int OLDEST = 10;
+
+	/**
+	 * Time in nanoseconds for which a {@link Snapshot} is reused.
+	 */
+	static final long SNAPSHOT_TTL = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Number of slots of the first segment, each following segment is twice as large.
+	 */
+	static final int INITIAL_SEGMENT_SIZE = 16;
+
+	private static final int INITIAL_SEGMENT_SHIFT = Integer.numberOfTrailingZeros(INITIAL_SEGMENT_SIZE);
+
+	/**
+	 * Slots probed in a segment before moving on to the next one.
+	 */
+	private static final int MAX_PROBES = 32;
+
+	private static final long FREE = 0;
+
+	/**
+	 * Marks the slots of a segment that is being released so that no task claims them.
+	 */
+	private static final long RELEASED = -1;
+
+	private final Clock clock;
+
+	private final long origin;
+
+	private final int maxActive;
+
+	private final double[] percentiles;
+
+	/**
+	 * Segments by index, only the first {@link #segmentCount} are published. Holds one
+	 * reference per doubling of the capacity.
+	 */
+	private final AtomicReferenceArray<AtomicLongArray> segments;
+
+	private volatile int segmentCount;
+
+	private final LongAdder active = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Durations of the last scan, only used when percentiles are computed. Reused across
+	 * snapshots and shrunk together with the segments.
+	 */
+	private long[] durations = new long[0];
+
+	private Snapshot snapshot;
+
+	ActiveTaskTracker(Clock clock, int maxActive, double... percentiles) {
+		this.clock = clock;
+		this.origin = clock.monotonicTime();
+		this.maxActive = Math.max(1, maxActive);
+		this.percentiles = percentiles.clone();
+		this.segments = new AtomicReferenceArray<>(segmentOf(this.maxActive - 1) + 1);
+		this.segments.set(0, new AtomicLongArray(segmentSize(0)));
+		this.segmentCount = 1;
+	}
+
+	/**
+	 * Record the start of a task.
+	 * @return the slot of the task to pass to {@link #stop(int)}, or {@link #NO_SLOT} if
+	 * the tracker is full
+	 */
+	int start() {
+		// Stored relative to the origin and offset by one so that FREE is never a start
+		long start = now();
+		int random = ThreadLocalRandom.current().nextInt();
+		int count = this.segmentCount;
+		while (true) {
+			for (int segment = 0; segment < count; segment++) {
+				int slot = claim(segment, random, MAX_PROBES, start);
+				if (slot != NO_SLOT) {
+					return slot;
+				}
+			}
+			int grown = grow(count);
+			if (grown == count) {
+				break;
+			}
+			count = grown;
+		}
+		for (int segment = 0; segment < count; segment++) {
+			int slot = claim(segment, random, Integer.MAX_VALUE, start);
+			if (slot != NO_SLOT) {
+				return slot;
+			}
+		}
+		this.dropped.increment();
+		return NO_SLOT;
+	}
+
+	/**
+	 * Add a segment if no other thread did since the given number of segments was read.
+	 * Threads that lose the race wait for the winner's segment to be published.
+	 * @param count the number of segments that were found crowded
+	 * @return the current number of segments, only equal to {@code count} if the tracker
+	 * is full
+	 */
+	private synchronized int grow(int count) {
+		int current = this.segmentCount;
+		if (current == count && count < this.segments.length()) {
+			this.segments.set(count, new AtomicLongArray(segmentSize(count)));
+			this.segmentCount = count + 1;
+			return count + 1;
+		}
+		return current;
+	}
+
+	private int claim(int segment, int random, int probes, long start) {
+		AtomicLongArray slots = this.segments.get(segment);
+		if (slots == null) {
+			// Released since the segment count was read
+			return NO_SLOT;
+		}
+		int size = slots.length();
+		for (int i = 0; i < Math.min(probes, size); i++) {
+			int index = Math.floorMod(random + i, size);
+			if (slots.get(index) == FREE && slots.compareAndSet(index, FREE, start)) {
+				this.active.increment();
+				return segmentOffset(segment) + index;
+			}
+		}
+		return NO_SLOT;
+	}
+
+	/**
+	 * Record the end of a task.
+	 * @param slot the slot returned by {@link #start()}
+	 */
+	void stop(int slot) {
+		if (slot != NO_SLOT) {
+			int segment = segmentOf(slot);
+			this.segments.get(segment).set(slot - segmentOffset(segment), FREE);
+			this.active.decrement();
+		}
+	}
+
+	long activeTasks() {
+		return this.active.sum();
+	}
+
+	/**
+	 * Return the number of slots of the published segments.
+	 * @return the number of slots
+	 */
+	int capacity() {
+		int count = this.segmentCount;
+		return (int) Math.min(segmentOffset(count), this.maxActive);
+	}
+
+	/**
+	 * Return the number of tasks that were not tracked because the tracker was full.
+	 * @return the number of dropped tasks
+	 */
+	long droppedTasks() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Return the current {@link Snapshot}, scanning the slots if the last one is older
+	 * than {@link #SNAPSHOT_TTL}.
+	 * @return the snapshot
+	 */
+	synchronized Snapshot snapshot() {
+		long now = now();
+		if (this.snapshot == null || now - this.snapshot.time >= SNAPSHOT_TTL) {
+			this.snapshot = takeSnapshot(now);
+		}
+		return this.snapshot;
+	}
+
+	private Snapshot takeSnapshot(long now) {
+		boolean percentiles = this.percentiles.length > 0;
+		long[] oldest = new long[OLDEST];
+		int oldestSize = 0;
+		int size = 0;
+		double total = 0;
+		int count = this.segmentCount;
+		for (int segment = 0; segment < count; segment++) {
+			AtomicLongArray slots = this.segments.get(segment);
+			if (slots == null) {
+				continue;
+			}
+			for (int index = 0; index < slots.length(); index++) {
+				long start = slots.get(index);
+				if (start == FREE || start == RELEASED) {
+					continue;
+				}
+				long duration = now - start;
+				total += duration;
+				oldestSize = addOldest(oldest, oldestSize, duration);
+				if (percentiles) {
+					if (size == this.durations.length) {
+						this.durations = Arrays.copyOf(this.durations, Math.max(16, size * 2));
+					}
+					this.durations[size] = duration;
+				}
+				size++;
+			}
+		}
+		releaseSegments(size);
+		if (this.durations.length > 16 && size < this.durations.length / 4) {
+			this.durations = Arrays.copyOf(this.durations, Math.max(16, size * 2));
+		}
+		double[] values = new double[this.percentiles.length];
+		for (int i = 0; i < values.length && size > 0; i++) {
+			int rank = (int) Math.ceil(this.percentiles[i] * size) - 1;
+			values[i] = select(this.durations, size, Math.max(0, Math.min(rank, size - 1)));
+		}
+		return new Snapshot(now, total, Arrays.copyOf(oldest, oldestSize), values);
+	}
+
+	/**
+	 * Release the last segments while they are empty and the remaining ones are at most
+	 * half full, so that a tracker shrinks back after a peak without thrashing. Called
+	 * with the monitor held, which excludes {@link #grow(int)}.
+	 * @param active the number of active tasks found by the last scan
+	 */
+	private void releaseSegments(int active) {
+		int count = this.segmentCount;
+		while (count > 1 && active <= segmentOffset(count - 1) / 2) {
+			AtomicLongArray slots = this.segments.get(count - 1);
+			if (!markReleased(slots)) {
+				return;
+			}
+			count--;
+			this.segmentCount = count;
+			this.segments.set(count, null);
+		}
+	}
+
+	/**
+	 * Mark every slot of the given segment as released, unless a task holds one of them.
+	 * @param slots the slots of the segment
+	 * @return whether the segment was empty and all slots are now released
+	 */
+	private static boolean markReleased(AtomicLongArray slots) {
+		for (int index = 0; index < slots.length(); index++) {
+			if (!slots.compareAndSet(index, FREE, RELEASED)) {
+				for (int i = 0; i < index; i++) {
+					slots.set(i, FREE);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the segment holding the given slot.
+	 * @param slot the slot
+	 * @return the index of the segment
+	 */
+	private static int segmentOf(int slot) {
+		return 31 - Integer.numberOfLeadingZeros((slot >>> INITIAL_SEGMENT_SHIFT) + 1);
+	}
+
+	/**
+	 * Return the first slot of the given segment.
+	 * @param segment the index of the segment
+	 * @return the slot
+	 */
+	private static int segmentOffset(int segment) {
+		return (int) ((((long) INITIAL_SEGMENT_SIZE) << segment) - INITIAL_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Return the number of slots of the given segment, limited to the maximum number of
+	 * active tasks.
+	 * @param segment the index of the segment
+	 * @return the number of slots
+	 */
+	private int segmentSize(int segment) {
+		return (int) Math.min(((long) INITIAL_SEGMENT_SIZE) << segment, (long) this.maxActive - segmentOffset(segment));
+	}
+
+	/**
+	 * Add the given duration to the longest durations, kept in descending order.
+	 * @param oldest the longest durations
+	 * @param size the number of longest durations
+	 * @param duration the duration to add
+	 * @return the new number of longest durations
+	 */
+	private static int addOldest(long[] oldest, int size, long duration) {
+		if (size == oldest.length && duration <= oldest[size - 1]) {
+			return size;
+		}
+		int index = Math.min(size, oldest.length - 1);
+		while (index > 0 && oldest[index - 1] < duration) {
+			oldest[index] = oldest[index - 1];
+			index--;
+		}
+		oldest[index] = duration;
+		return Math.min(size + 1, oldest.length);
+	}
+
+	/**
+	 * Return the value of the given rank among the first {@code size} values, partially
+	 * reordering them.
+	 * @param values the values
+	 * @param size the number of values to select from
+	 * @param rank the rank of the value, starting at zero
+	 * @return the value
+	 */
+	private static long select(long[] values, int size, int rank) {
+		int left = 0;
+		int right = size - 1;
+		while (left < right) {
+			long pivot = values[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot) {
+					i++;
+				}
+				while (values[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					long value = values[i];
+					values[i++] = values[j];
+					values[j--] = value;
+				}
+			}
+			if (rank <= j) {
+				right = j;
+			}
+			else if (rank >= i) {
+				left = i;
+			}
+			else {
+				break;
+			}
+		}
+		return values[rank];
+	}
+
+	private long now() {
+		return this.clock.monotonicTime() - this.origin + 1;
+	}
+
+	/**
+	 * Durations of the active tasks at one point in time, in nanoseconds.
+	 */
+	static final class Snapshot {
+
+		private final long time;
+
+		private final double duration;
+
+		private final long[] oldest;
+
+		private final double[] percentiles;
+
+		private Snapshot(long time, double duration, long[] oldest, double[] percentiles) {
+			this.time = time;
+			this.duration = duration;
+			this.oldest = oldest;
+			this.percentiles = percentiles;
+		}
+
+		/**
+		 * Return the summed duration of all active tasks.
+		 * @return the duration in nanoseconds
+		 */
+		double duration() {
+			return this.duration;
+		}
+
+		/**
+		 * Return the duration of the oldest active task.
+		 * @return the duration in nanoseconds
+		 */
+		double max() {
+			return (this.oldest.length != 0) ? this.oldest[0] : 0;
+		}
+
+		/**
+		 * Return the durations of the oldest active tasks, up to
+		 * {@link ActiveTaskTracker#OLDEST}.
+		 * @return the durations in nanoseconds, longest first
+		 */
+		long[] oldest() {
+			return this.oldest.clone();
+		}
+
+		/**
+		 * Return the duration below which the percentage of the active tasks at the given
+		 * index of the tracker's percentiles fall.
+		 * @param index the index of the percentile
+		 * @return the duration in nanoseconds
+		 */
+		double percentile(int index) {
+			return this.percentiles[index];
+		}
+
+	}
+
+}
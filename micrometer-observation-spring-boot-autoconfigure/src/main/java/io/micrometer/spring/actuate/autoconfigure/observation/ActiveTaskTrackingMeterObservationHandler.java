@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link MeterObservationHandler} that tracks in-flight observations with
+ * {@link ActiveObservations}, and delegates the recording of every other meter. It
+ * replaces the {@code LongTaskTimer} sample per observation, so the delegate should not
+ * record a long task timer itself, see
+ * {@link CachingMeterObservationHandler#CachingMeterObservationHandler(MeterRegistry, KeyValuesInterner, boolean)}.
+ * <p>
+ * Each observation still allocates a small handle to its tracker and slot, kept in the
+ * observation context, in place of the long task timer sample and its queue node. The
+ * allocation per observation is therefore about the same, what changes is that stopping
+ * an observation no longer searches the queue of in-flight samples.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class ActiveTaskTrackingMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+	private final MeterObservationHandler<Observation.Context> delegate;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ActiveObservations activeObservations;
+
+	/**
+	 * Create a new {@link ActiveTaskTrackingMeterObservationHandler} instance.
+	 * @param delegate the handler that records the other meters
+	 * @param meterRegistry the registry the {@code <name>.active.*} meters are registered
+	 * with
+	 * @param activeObservations the tracker of in-flight observations
+	 */
+	public ActiveTaskTrackingMeterObservationHandler(MeterObservationHandler<Observation.Context> delegate,
+			MeterRegistry meterRegistry, ActiveObservations activeObservations) {
+		this.delegate = delegate;
+		this.meterRegistry = meterRegistry;
+		this.activeObservations = activeObservations;
+	}
+
+	@Override
+	public void onStart(Observation.Context context) {
+		ActiveTaskTracker tracker = this.activeObservations.getTracker(this.meterRegistry, context.getName(),
+				context.getLowCardinalityKeyValues());
+		context.put(ActiveTask.class, new ActiveTask(tracker, tracker.start()));
+		this.delegate.onStart(context);
+	}
+
+	@Override
+	public void onError(Observation.Context context) {
+		this.delegate.onError(context);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		this.delegate.onEvent(event, context);
+	}
+
+	@Override
+	public void onScopeOpened(Observation.Context context) {
+		this.delegate.onScopeOpened(context);
+	}
+
+	@Override
+	public void onScopeClosed(Observation.Context context) {
+		this.delegate.onScopeClosed(context);
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		this.delegate.onStop(context);
+		ActiveTask activeTask = context.getRequired(ActiveTask.class);
+		activeTask.tracker().stop(activeTask.slot());
+	}
+
+	@Override
+	public boolean supportsContext(Observation.Context context) {
+		return this.delegate.supportsContext(context);
+	}
+
+	/**
+	 * Handle of an in-flight observation, the only object allocated per observation.
+	 */
+	private record ActiveTask(ActiveTaskTracker tracker, int slot) {
+
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.observation.Observation;
+
+/**
+ * The {@link Observation.Event events} of a single observation aggregated into a count
+ * and, when recorded, the first and last wall time and the low cardinality key-values at
+ * the first occurrence per event name.
+ *
+ * @author Micrometer Team
+ */
+final class AggregatedEvents {
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * Return the {@link AggregatedEvents} stored in the given context under the given
+	 * key, creating them if necessary.
+	 * @param context the observation context
+	 * @param key the key the events are stored under
+	 * @return the aggregated events
+	 */
+	static AggregatedEvents get(Observation.Context context, Object key) {
+		return context.computeIfAbsent(key, (ignored) -> new AggregatedEvents());
+	}
+
+	/**
+	 * Remove and return the entries of the {@link AggregatedEvents} stored in the given
+	 * context under the given key.
+	 * @param context the observation context
+	 * @param key the key the events are stored under
+	 * @return the entries, empty if no event was aggregated
+	 */
+	static Collection<Entry> remove(Observation.Context context, Object key) {
+		AggregatedEvents events = (AggregatedEvents) context.remove(key);
+		return (events != null) ? events.entries() : Collections.emptyList();
+	}
+
+	/**
+	 * Add an occurrence of the given event, recording the low cardinality key-values of
+	 * the given context if it is the first one.
+	 * @param event the event
+	 * @param context the observation context
+	 */
+	void add(Observation.Event event, Observation.Context context) {
+		add(event, 0, context);
+	}
+
+	/**
+	 * Add an occurrence of the given event at the given wall time.
+	 * @param event the event
+	 * @param wallTime the wall time of the occurrence in milliseconds
+	 */
+	void add(Observation.Event event, long wallTime) {
+		add(event, wallTime, null);
+	}
+
+	private synchronized void add(Observation.Event event, long wallTime, Observation.Context context) {
+		Entry entry = this.entries.get(event.getName());
+		if (entry == null) {
+			KeyValues keyValues = (context != null) ? context.getLowCardinalityKeyValues() : KeyValues.empty();
+			this.entries.put(event.getName(), new Entry(event, wallTime, keyValues));
+		}
+		else {
+			entry.count++;
+			entry.lastWallTime = wallTime;
+		}
+	}
+
+	private synchronized Collection<Entry> entries() {
+		return new ArrayList<>(this.entries.values());
+	}
+
+	/**
+	 * The aggregate of the events with the same name.
+	 */
+	static final class Entry {
+
+		private final Observation.Event event;
+
+		private final long firstWallTime;
+
+		private final KeyValues keyValues;
+
+		private long lastWallTime;
+
+		private long count = 1;
+
+		private Entry(Observation.Event event, long wallTime, KeyValues keyValues) {
+			this.event = event;
+			this.firstWallTime = wallTime;
+			this.lastWallTime = wallTime;
+			this.keyValues = keyValues;
+		}
+
+		Observation.Event getEvent() {
+			return this.event;
+		}
+
+		long getFirstWallTime() {
+			return this.firstWallTime;
+		}
+
+		long getLastWallTime() {
+			return this.lastWallTime;
+		}
+
+		KeyValues getKeyValues() {
+			return this.keyValues;
+		}
+
+		long getCount() {
+			return this.count;
+		}
+
+	}
+
+}
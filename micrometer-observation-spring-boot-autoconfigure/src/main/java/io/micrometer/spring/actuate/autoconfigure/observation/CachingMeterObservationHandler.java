@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link MeterObservationHandler} that records the same meters as the
+ * {@link DefaultMeterObservationHandler} but looks them up by observation name and
+ * {@link KeyValuesInterner interned} low cardinality key-values, instead of building tags
+ * and registering them on every start and stop. The meters are resolved once per
+ * observation and kept in its context, they are only looked up again when the name or the
+ * key-values of the observation change. Only meters for canonical key-values are cached,
+ * so the caches are bounded by the interner. Meters removed from the registry are evicted
+ * from the caches and registered again on their next use.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class CachingMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+	private final MeterRegistry meterRegistry;
+
+	private final KeyValuesInterner interner;
+
+	private final boolean longTaskTimer;
+
+	private final ConcurrentMap<String, ConcurrentMap<KeyValuesInterner.InternedKeyValues, Meters>> meters = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link CachingMeterObservationHandler} instance.
+	 * @param meterRegistry the registry to record into
+	 * @param interner the interner for low cardinality key-values
+	 */
+	public CachingMeterObservationHandler(MeterRegistry meterRegistry, KeyValuesInterner interner) {
+		this(meterRegistry, interner, true);
+	}
+
+	/**
+	 * Create a new {@link CachingMeterObservationHandler} instance.
+	 * @param meterRegistry the registry to record into
+	 * @param interner the interner for low cardinality key-values
+	 * @param longTaskTimer whether to record the {@code <name>.active} long task timer
+	 */
+	public CachingMeterObservationHandler(MeterRegistry meterRegistry, KeyValuesInterner interner,
+			boolean longTaskTimer) {
+		this.meterRegistry = meterRegistry;
+		this.interner = interner;
+		this.longTaskTimer = longTaskTimer;
+		meterRegistry.config().onMeterRemoved(this::evict);
+	}
+
+	@Override
+	public void onStart(Observation.Context context) {
+		Meters meters = resolve(context.getName(), context.getLowCardinalityKeyValues());
+		context.put(this, meters);
+		if (this.longTaskTimer) {
+			context.put(LongTaskTimer.Sample.class, meters.getLongTaskTimer().start());
+		}
+		context.put(Timer.Sample.class, Timer.start(this.meterRegistry));
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		getMeters(context).getCounter(event.getName()).increment();
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		Timer timer = getMeters(context).getTimer(ObservationTags.error(context));
+		Timer.Sample sample = context.getRequired(Timer.Sample.class);
+		sample.stop(timer);
+		if (this.longTaskTimer) {
+			LongTaskTimer.Sample longTaskSample = context.getRequired(LongTaskTimer.Sample.class);
+			longTaskSample.stop();
+		}
+	}
+
+	private Meters getMeters(Observation.Context context) {
+		// Key-values are usually added at start, conventions and filters may still
+		// change them before stop
+		Meters meters = context.get(this);
+		KeyValues keyValues = context.getLowCardinalityKeyValues();
+		if (meters != null && meters.name.equals(context.getName())
+				&& meters.keyValues.getKeyValues().equals(keyValues)) {
+			return meters;
+		}
+		meters = resolve(context.getName(), keyValues);
+		context.put(this, meters);
+		return meters;
+	}
+
+	private Meters resolve(String name, KeyValues keyValues) {
+		KeyValuesInterner.InternedKeyValues interned = this.interner.intern(keyValues);
+		if (!interned.isCanonical()) {
+			return new Meters(name, interned);
+		}
+		ConcurrentMap<KeyValuesInterner.InternedKeyValues, Meters> byKeyValues = this.meters.get(name);
+		if (byKeyValues == null) {
+			byKeyValues = this.meters.computeIfAbsent(name, (key) -> new ConcurrentHashMap<>());
+		}
+		Meters meters = byKeyValues.get(interned);
+		return (meters != null) ? meters : byKeyValues.computeIfAbsent(interned, (key) -> new Meters(name, key));
+	}
+
+	private void evict(Meter meter) {
+		// Meters are named after the observation, optionally followed by a suffix
+		String meterName = meter.getId().getName();
+		evict(meterName, meter);
+		for (int i = meterName.indexOf('.'); i != -1; i = meterName.indexOf('.', i + 1)) {
+			evict(meterName.substring(0, i), meter);
+		}
+	}
+
+	private void evict(String name, Meter meter) {
+		ConcurrentMap<KeyValuesInterner.InternedKeyValues, Meters> byKeyValues = this.meters.get(name);
+		if (byKeyValues != null) {
+			byKeyValues.values().forEach((meters) -> meters.evict(meter));
+		}
+	}
+
+	/**
+	 * Meters of an observation name and its key-values.
+	 */
+	private final class Meters {
+
+		private final String name;
+
+		private final KeyValuesInterner.InternedKeyValues keyValues;
+
+		private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+		private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+		private volatile LongTaskTimer longTaskTimer;
+
+		Meters(String name, KeyValuesInterner.InternedKeyValues keyValues) {
+			this.name = name;
+			this.keyValues = keyValues;
+		}
+
+		LongTaskTimer getLongTaskTimer() {
+			LongTaskTimer longTaskTimer = this.longTaskTimer;
+			return (longTaskTimer != null) ? longTaskTimer : registerLongTaskTimer();
+		}
+
+		private synchronized LongTaskTimer registerLongTaskTimer() {
+			if (this.longTaskTimer == null) {
+				this.longTaskTimer = LongTaskTimer.builder(this.name + ".active").tags(this.keyValues.getTags())
+						.register(CachingMeterObservationHandler.this.meterRegistry);
+			}
+			return this.longTaskTimer;
+		}
+
+		Timer getTimer(String error) {
+			Timer timer = this.timers.get(error);
+			return (timer != null) ? timer
+					: this.timers.computeIfAbsent(error,
+							(key) -> Timer.builder(this.name).tag("error", key).tags(this.keyValues.getTags())
+									.register(CachingMeterObservationHandler.this.meterRegistry));
+		}
+
+		Counter getCounter(String event) {
+			Counter counter = this.counters.get(event);
+			return (counter != null) ? counter
+					: this.counters.computeIfAbsent(event,
+							(key) -> Counter.builder(this.name + "." + key).tags(this.keyValues.getTags())
+									.register(CachingMeterObservationHandler.this.meterRegistry));
+		}
+
+		synchronized void evict(Meter meter) {
+			if (this.longTaskTimer == meter) {
+				this.longTaskTimer = null;
+			}
+			this.timers.values().remove(meter);
+			this.counters.values().remove(meter);
+		}
+
+	}
+
+}
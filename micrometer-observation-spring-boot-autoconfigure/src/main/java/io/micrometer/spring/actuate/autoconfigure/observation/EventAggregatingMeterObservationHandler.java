@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link MeterObservationHandler} that aggregates the events of an observation per name
+ * and increments the {@code <observation name>.<event name>} counter once per name with
+ * the number of occurrences when the observation stops. Like with the
+ * {@code DefaultMeterObservationHandler}, the counter is tagged with the low cardinality
+ * key-values present at the first occurrence, not those present at stop. Everything else
+ * is handled by the delegate.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class EventAggregatingMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+	private final MeterObservationHandler<Observation.Context> delegate;
+
+	private final MeterRegistry meterRegistry;
+
+	private final KeyValuesInterner interner;
+
+	/**
+	 * Create a new {@link EventAggregatingMeterObservationHandler} instance.
+	 * @param delegate the handler to delegate to
+	 * @param meterRegistry the registry the event counters are registered with
+	 */
+	public EventAggregatingMeterObservationHandler(MeterObservationHandler<Observation.Context> delegate,
+			MeterRegistry meterRegistry) {
+		this(delegate, meterRegistry, null);
+	}
+
+	/**
+	 * Create a new {@link EventAggregatingMeterObservationHandler} instance.
+	 * @param delegate the handler to delegate to
+	 * @param meterRegistry the registry the event counters are registered with
+	 * @param interner the interner used to look up the tags of low cardinality key-values
+	 * or {@code null}
+	 */
+	public EventAggregatingMeterObservationHandler(MeterObservationHandler<Observation.Context> delegate,
+			MeterRegistry meterRegistry, KeyValuesInterner interner) {
+		this.delegate = delegate;
+		this.meterRegistry = meterRegistry;
+		this.interner = interner;
+	}
+
+	@Override
+	public void onStart(Observation.Context context) {
+		this.delegate.onStart(context);
+	}
+
+	@Override
+	public void onError(Observation.Context context) {
+		this.delegate.onError(context);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		AggregatedEvents.get(context, this).add(event, context);
+	}
+
+	@Override
+	public void onScopeOpened(Observation.Context context) {
+		this.delegate.onScopeOpened(context);
+	}
+
+	@Override
+	public void onScopeClosed(Observation.Context context) {
+		this.delegate.onScopeClosed(context);
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		this.delegate.onStop(context);
+		for (AggregatedEvents.Entry entry : AggregatedEvents.remove(context, this)) {
+			Tags tags = ObservationTags.of(entry.getKeyValues(), this.interner);
+			Counter.builder(context.getName() + "." + entry.getEvent().getName()).tags(tags)
+					.register(this.meterRegistry).increment(entry.getCount());
+		}
+	}
+
+	@Override
+	public boolean supportsContext(Observation.Context context) {
+		return this.delegate.supportsContext(context);
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import io.micrometer.tracing.propagation.Propagator;
+
+/**
+ * {@link PropagatingReceiverTracingObservationHandler} that aggregates the events of an
+ * observation per name like the {@link EventAggregatingTracingObservationHandler}.
+ *
+ * @param <T> the type of the receiver context
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class EventAggregatingPropagatingReceiverTracingObservationHandler<T extends ReceiverContext>
+		extends PropagatingReceiverTracingObservationHandler<T> {
+
+	/**
+	 * Create a new {@link EventAggregatingPropagatingReceiverTracingObservationHandler}
+	 * instance.
+	 * @param tracer the tracer to use
+	 * @param propagator the propagator to use
+	 */
+	public EventAggregatingPropagatingReceiverTracingObservationHandler(Tracer tracer, Propagator propagator) {
+		super(tracer, propagator);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, T context) {
+		EventAggregatingTracingObservationHandler.aggregate(event, context);
+	}
+
+	@Override
+	public void onStop(T context) {
+		EventAggregatingTracingObservationHandler.addAggregatedEvents(context, this);
+		super.onStop(context);
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+
+/**
+ * {@link DefaultTracingObservationHandler} that aggregates the events of an observation
+ * per name instead of adding one span event each. When the observation stops, every event
+ * name is added once at the time it first occurred and, if it occurred more than once,
+ * again at the time it last occurred. The number of occurrences is added as a
+ * {@code <event name>.count} tag.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ * @see EventAggregatingPropagatingSenderTracingObservationHandler
+ * @see EventAggregatingPropagatingReceiverTracingObservationHandler
+ */
+public class EventAggregatingTracingObservationHandler extends DefaultTracingObservationHandler {
+
+	/**
+	 * Create a new {@link EventAggregatingTracingObservationHandler} instance.
+	 * @param tracer the tracer to use
+	 */
+	public EventAggregatingTracingObservationHandler(Tracer tracer) {
+		super(tracer);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		aggregate(event, context);
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		addAggregatedEvents(context, this);
+		super.onStop(context);
+	}
+
+	/**
+	 * Aggregate the given event of the given observation.
+	 * @param event the event
+	 * @param context the observation context
+	 */
+	static void aggregate(Observation.Event event, Observation.Context context) {
+		AggregatedEvents.get(context, EventAggregatingTracingObservationHandler.class).add(event,
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * Add the aggregated events of the given observation to its span.
+	 * @param <T> the type of the context
+	 * @param context the observation context
+	 * @param handler the handler that created the span
+	 */
+	static <T extends Observation.Context> void addAggregatedEvents(T context, TracingObservationHandler<T> handler) {
+		Collection<AggregatedEvents.Entry> entries = AggregatedEvents.remove(context,
+				EventAggregatingTracingObservationHandler.class);
+		if (entries.isEmpty()) {
+			return;
+		}
+		Span span = handler.getRequiredSpan(context);
+		for (AggregatedEvents.Entry entry : entries) {
+			String name = entry.getEvent().getContextualName();
+			span.event(name, entry.getFirstWallTime(), TimeUnit.MILLISECONDS);
+			if (entry.getCount() > 1) {
+				span.event(name, entry.getLastWallTime(), TimeUnit.MILLISECONDS);
+			}
+			span.tag(name + ".count", String.valueOf(entry.getCount()));
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Bounded concurrent cache that canonicalizes low cardinality {@link KeyValues}. Equal
+ * {@link KeyValues} are interned to the same {@link InternedKeyValues} instance, which
+ * carries a precomputed hash and the matching {@link Tags}, so that caches keyed by it
+ * can use identity equality. Once the cache is full, new combinations are no longer
+ * interned and are returned as non-canonical instances instead.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class KeyValuesInterner {
+
+	private final ConcurrentMap<KeyValues, InternedKeyValues> cache = new ConcurrentHashMap<>();
+
+	private final int maxSize;
+
+	/**
+	 * Create a new {@link KeyValuesInterner} instance.
+	 * @param maxSize the maximum number of interned {@link KeyValues}
+	 */
+	public KeyValuesInterner(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the canonical {@link InternedKeyValues} for the given {@link KeyValues}.
+	 * @param keyValues the key-values to intern
+	 * @return the interned key-values, only {@link InternedKeyValues#isCanonical()
+	 * canonical} if the cache was not full
+	 */
+	public InternedKeyValues intern(KeyValues keyValues) {
+		InternedKeyValues interned = this.cache.get(keyValues);
+		if (interned != null) {
+			return interned;
+		}
+		if (this.cache.size() >= this.maxSize) {
+			return new InternedKeyValues(keyValues, false);
+		}
+		return this.cache.computeIfAbsent(keyValues, (key) -> new InternedKeyValues(key, true));
+	}
+
+	/**
+	 * Return the number of interned {@link KeyValues}.
+	 * @return the number of interned key-values
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * {@link KeyValues} interned by a {@link KeyValuesInterner}. Canonical instances are
+	 * only equal to themselves.
+	 */
+	public static final class InternedKeyValues {
+
+		private final KeyValues keyValues;
+
+		private final Tags tags;
+
+		private final int hash;
+
+		private final boolean canonical;
+
+		private InternedKeyValues(KeyValues keyValues, boolean canonical) {
+			this.keyValues = keyValues;
+			this.tags = ObservationTags.of(keyValues);
+			this.hash = keyValues.hashCode();
+			this.canonical = canonical;
+		}
+
+		public KeyValues getKeyValues() {
+			return this.keyValues;
+		}
+
+		public Tags getTags() {
+			return this.tags;
+		}
+
+		/**
+		 * Return whether this instance is held by the interner and can therefore be
+		 * compared by identity.
+		 * @return whether this instance is canonical
+		 */
+		public boolean isCanonical() {
+			return this.canonical;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof InternedKeyValues other) || (this.canonical && other.canonical)) {
+				return false;
+			}
+			return this.keyValues.equals(other.keyValues);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+
+/**
+ * Creates the {@link MeterObservationHandler} used by
+ * {@link ObservationAutoConfiguration} from the {@link ObservationMetricsProperties} and
+ * {@link ObservationEventsProperties}. Composite registries created for routes that
+ * target several registries are closed when the factory is destroyed.
+ *
+ * @author Micrometer Team
+ */
+class MeterObservationHandlerFactory implements DisposableBean {
+
+	private final ObservationMetricsProperties properties;
+
+	private final ObservationEventsProperties eventsProperties;
+
+	private final KeyValuesInterner interner;
+
+	private final ActiveObservations activeObservations;
+
+	private final ListableBeanFactory beanFactory;
+
+	private final List<CompositeMeterRegistry> composites = new ArrayList<>();
+
+	MeterObservationHandlerFactory(ObservationMetricsProperties properties,
+			ObservationEventsProperties eventsProperties, KeyValuesInterner interner,
+			ActiveObservations activeObservations, ListableBeanFactory beanFactory) {
+		this.properties = properties;
+		this.eventsProperties = eventsProperties;
+		this.interner = interner;
+		this.activeObservations = activeObservations;
+		this.beanFactory = beanFactory;
+	}
+
+	MeterObservationHandler<Observation.Context> create(MeterRegistry meterRegistry) {
+		MeterObservationHandler<Observation.Context> defaultHandler = createForRegistry(meterRegistry);
+		List<ObservationMetricsProperties.Route> routes = this.properties.getRoutes();
+		if (routes.isEmpty()) {
+			return defaultHandler;
+		}
+		Map<String, MeterRegistry> registries = this.beanFactory.getBeansOfType(MeterRegistry.class);
+		Map<TreeSet<String>, MeterObservationHandler<Observation.Context>> handlers = new HashMap<>();
+		List<RoutingMeterObservationHandler.Route> resolved = new ArrayList<>(routes.size());
+		for (int i = 0; i < routes.size(); i++) {
+			ObservationMetricsProperties.Route route = routes.get(i);
+			TreeSet<String> names = getRegistryNames(route, i, registries);
+			MeterObservationHandler<Observation.Context> handler = handlers.computeIfAbsent(names,
+					(key) -> createForRegistry(getRegistry(meterRegistry, key, registries)));
+			resolved.add(
+					new RoutingMeterObservationHandler.Route(route.getNamePrefix(), route.getKeyValues(), handler));
+		}
+		return new RoutingMeterObservationHandler(resolved, defaultHandler);
+	}
+
+	private MeterObservationHandler<Observation.Context> createForRegistry(MeterRegistry meterRegistry) {
+		MeterObservationHandler<Observation.Context> handler = createBaseHandler(meterRegistry);
+		ObservationMetricsProperties.Striped striped = this.properties.getStriped();
+		if (!striped.getNames().isEmpty()) {
+			int stripes = (striped.getStripes() != null) ? striped.getStripes()
+					: Runtime.getRuntime().availableProcessors() * 2;
+			handler = new StripedMeterObservationHandler(handler, meterRegistry, striped.getNames(),
+					striped.getBuckets(), stripes, this.interner);
+		}
+		if (this.eventsProperties.isAggregate()) {
+			handler = new EventAggregatingMeterObservationHandler(handler, meterRegistry, this.interner);
+		}
+		return handler;
+	}
+
+	private MeterObservationHandler<Observation.Context> createBaseHandler(MeterRegistry meterRegistry) {
+		if (this.activeObservations != null) {
+			// An interner that holds nothing looks meters up in the registry on every
+			// call, like the DefaultMeterObservationHandler
+			KeyValuesInterner interner = (this.interner != null) ? this.interner : new KeyValuesInterner(0);
+			return new ActiveTaskTrackingMeterObservationHandler(
+					new CachingMeterObservationHandler(meterRegistry, interner, false), meterRegistry,
+					this.activeObservations);
+		}
+		if (this.interner != null) {
+			return new CachingMeterObservationHandler(meterRegistry, this.interner);
+		}
+		return new DefaultMeterObservationHandler(meterRegistry);
+	}
+
+	private TreeSet<String> getRegistryNames(ObservationMetricsProperties.Route route, int index,
+			Map<String, MeterRegistry> registries) {
+		String propertyName = "management.observations.metrics.routes[" + index + "].registries";
+		if (route.getRegistries().isEmpty()) {
+			throw new InvalidConfigurationPropertyValueException(propertyName, route.getRegistries(),
+					"At least one MeterRegistry bean name must be specified");
+		}
+		for (String name : route.getRegistries()) {
+			if (!registries.containsKey(name)) {
+				throw new InvalidConfigurationPropertyValueException(propertyName, name,
+						"No MeterRegistry bean named '" + name + "' is available");
+			}
+		}
+		return new TreeSet<>(route.getRegistries());
+	}
+
+	private MeterRegistry getRegistry(MeterRegistry meterRegistry, TreeSet<String> names,
+			Map<String, MeterRegistry> registries) {
+		if (names.size() == 1) {
+			return registries.get(names.first());
+		}
+		List<MeterRegistry> targets = names.stream().map(registries::get).toList();
+		CompositeMeterRegistry composite = new CompositeMeterRegistry(meterRegistry.config().clock(), targets);
+		this.composites.add(composite);
+		return composite;
+	}
+
+	@Override
+	public void destroy() {
+		for (CompositeMeterRegistry composite : this.composites) {
+			// The targets are beans with their own lifecycle, detach them so that closing
+			// the composite does not close them
+			List.copyOf(composite.getRegistries()).forEach(composite::remove);
+			composite.close();
+		}
+		this.composites.clear();
+	}
+
+}
@@ -17,13 +17,14 @@
 package io.micrometer.spring.actuate.autoconfigure.observation;
 
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
 import io.micrometer.core.instrument.observation.MeterObservationHandler;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
 import io.micrometer.tracing.Tracer;
 import io.micrometer.tracing.handler.TracingAwareMeterObservationHandler;
 
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -31,6 +32,8 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -44,18 +47,59 @@ import org.springframework.context.annotation.Configuration;
  */
 @AutoConfiguration(after = { CompositeMeterRegistryAutoConfiguration.class, MicrometerTracingAutoConfiguration.class })
 @ConditionalOnClass(ObservationRegistry.class)
+@EnableConfigurationProperties({ ObservationMetricsProperties.class, ObservationEventsProperties.class })
 public class ObservationAutoConfiguration {
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnProperty(prefix = "management.observations.metrics.key-values-cache", name = "enabled",
+			havingValue = "true")
+	static class KeyValuesCacheConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		KeyValuesInterner keyValuesInterner(ObservationMetricsProperties properties) {
+			return new KeyValuesInterner(properties.getKeyValuesCache().getMaxSize());
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnProperty(prefix = "management.observations.metrics.active-tasks", name = "enabled",
+			havingValue = "true")
+	@ConditionalOnBean(Tracer.class)
+	static class ActiveTasksConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		ActiveObservations activeObservations(ObservationMetricsProperties properties) {
+			ObservationMetricsProperties.ActiveTasks activeTasks = properties.getActiveTasks();
+			return new ActiveObservations(activeTasks.getMaxActive(), activeTasks.getPercentiles());
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnBean(Tracer.class)
 	static class MetricsWithTracingConfiguration {
 
+		@Bean
+		@ConditionalOnMissingBean(MeterObservationHandler.class)
+		@ConditionalOnBean(MeterRegistry.class)
+		MeterObservationHandlerFactory meterObservationHandlerFactory(ObservationMetricsProperties properties,
+				ObservationEventsProperties eventsProperties, ObjectProvider<KeyValuesInterner> interner,
+				ObjectProvider<ActiveObservations> activeObservations, ListableBeanFactory beanFactory) {
+			return new MeterObservationHandlerFactory(properties, eventsProperties, interner.getIfAvailable(),
+					activeObservations.getIfAvailable(), beanFactory);
+		}
+
 		@Bean
 		@ConditionalOnMissingBean(MeterObservationHandler.class)
 		@ConditionalOnBean(MeterRegistry.class)
 		TracingAwareMeterObservationHandler<Observation.Context> tracingAwareMeterObservationHandler(
-				MeterRegistry meterRegistry, Tracer tracer) {
-			return new TracingAwareMeterObservationHandler<>(new DefaultMeterObservationHandler(meterRegistry), tracer);
+				MeterRegistry meterRegistry, Tracer tracer, MeterObservationHandlerFactory factory) {
+			return new TracingAwareMeterObservationHandler<>(factory.create(meterRegistry), tracer);
 		}
 
 	}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingSenderTracingObservationHandler;
+import io.micrometer.tracing.propagation.Propagator;
+
+import org.springframework.boot.actuate.autoconfigure.tracing.BraveAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.ConditionalOnEnabledTracing;
+import org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+/**
+ * {@link EnableAutoConfiguration Auto-configuration} for the aggregation of observation
+ * events. Replaces the default and the propagating tracing observation handlers with
+ * aggregating ones. The meter side is applied by {@link ObservationAutoConfiguration}.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+@AutoConfiguration(after = { BraveAutoConfiguration.class, OpenTelemetryAutoConfiguration.class },
+		before = MicrometerTracingAutoConfiguration.class)
+@ConditionalOnClass(ObservationRegistry.class)
+@ConditionalOnProperty(prefix = "management.observations.events", name = "aggregate", havingValue = "true")
+public class ObservationEventsAutoConfiguration {
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(Tracer.class)
+	@ConditionalOnEnabledTracing
+	static class TracingConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(DefaultTracingObservationHandler.class)
+		@ConditionalOnBean(Tracer.class)
+		@Order(MicrometerTracingAutoConfiguration.DEFAULT_TRACING_OBSERVATION_HANDLER_ORDER)
+		EventAggregatingTracingObservationHandler eventAggregatingTracingObservationHandler(Tracer tracer) {
+			return new EventAggregatingTracingObservationHandler(tracer);
+		}
+
+		@Bean
+		@ConditionalOnMissingBean(PropagatingSenderTracingObservationHandler.class)
+		@ConditionalOnBean({ Tracer.class, Propagator.class })
+		@Order(MicrometerTracingAutoConfiguration.SENDER_TRACING_OBSERVATION_HANDLER_ORDER)
+		EventAggregatingPropagatingSenderTracingObservationHandler<?> eventAggregatingPropagatingSenderTracingObservationHandler(
+				Tracer tracer, Propagator propagator) {
+			return new EventAggregatingPropagatingSenderTracingObservationHandler<>(tracer, propagator);
+		}
+
+		@Bean
+		@ConditionalOnMissingBean(PropagatingReceiverTracingObservationHandler.class)
+		@ConditionalOnBean({ Tracer.class, Propagator.class })
+		@Order(MicrometerTracingAutoConfiguration.RECEIVER_TRACING_OBSERVATION_HANDLER_ORDER)
+		EventAggregatingPropagatingReceiverTracingObservationHandler<?> eventAggregatingPropagatingReceiverTracingObservationHandler(
+				Tracer tracer, Propagator propagator) {
+			return new EventAggregatingPropagatingReceiverTracingObservationHandler<>(tracer, propagator);
+		}
+
+	}
+
+}
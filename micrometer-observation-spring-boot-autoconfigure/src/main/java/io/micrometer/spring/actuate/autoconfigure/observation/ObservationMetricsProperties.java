@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * {@link ConfigurationProperties @ConfigurationProperties} for recording metrics from
+ * observations.
+ *
+ * @since 3.0.0
+ */
+@ConfigurationProperties("management.observations.metrics")
+public class ObservationMetricsProperties {
+
+	/**
+	 * Rules that bind observations to a subset of the MeterRegistry beans. Rules are
+	 * evaluated in order and the first matching one wins. Observations that do not match
+	 * any rule are recorded into the primary MeterRegistry.
+	 */
+	private final List<Route> routes = new ArrayList<>();
+
+	private final Striped striped = new Striped();
+
+	private final KeyValuesCache keyValuesCache = new KeyValuesCache();
+
+	private final ActiveTasks activeTasks = new ActiveTasks();
+
+	public List<Route> getRoutes() {
+		return this.routes;
+	}
+
+	public Striped getStriped() {
+		return this.striped;
+	}
+
+	public KeyValuesCache getKeyValuesCache() {
+		return this.keyValuesCache;
+	}
+
+	public ActiveTasks getActiveTasks() {
+		return this.activeTasks;
+	}
+
+	/**
+	 * A rule binding matching observations to a subset of the MeterRegistry beans.
+	 */
+	public static class Route {
+
+		/**
+		 * Prefix the observation name must start with. Matches every name when not set.
+		 */
+		private String namePrefix;
+
+		/**
+		 * Low cardinality key-values the observation must have when it is started.
+		 * Key-values that are only added when the observation stops, such as the outcome
+		 * of a request, never match.
+		 */
+		private final Map<String, String> keyValues = new LinkedHashMap<>();
+
+		/**
+		 * Bean names of the MeterRegistry beans that matching observations are recorded
+		 * into. Only bean names are accepted, not registry types.
+		 */
+		private final List<String> registries = new ArrayList<>();
+
+		public String getNamePrefix() {
+			return this.namePrefix;
+		}
+
+		public void setNamePrefix(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		public Map<String, String> getKeyValues() {
+			return this.keyValues;
+		}
+
+		public List<String> getRegistries() {
+			return this.registries;
+		}
+
+	}
+
+	/**
+	 * Striped recording of hot observation timers.
+	 */
+	public static class Striped {
+
+		/**
+		 * Names of the observations whose timers are recorded into per-thread striped
+		 * accumulators that are merged when the registry publishes or is scraped. These
+		 * observations do not record a maximum or a long task timer, and MeterFilter
+		 * distribution configuration, such as SLOs and percentiles, does not apply to
+		 * them.
+		 */
+		private final Set<String> names = new LinkedHashSet<>();
+
+		/**
+		 * Histogram bucket boundaries recorded for the striped timers. They are exposed
+		 * as a family of cumulative counters named after the observation with a
+		 * '.histogram' suffix, tagged with 'le' and including a '+Inf' bucket, and not as
+		 * the histogram of a Timer.
+		 */
+		private final List<Duration> buckets = new ArrayList<>();
+
+		/**
+		 * Number of stripes per timer. When not set, twice the number of available
+		 * processors is used. Rounded up to the next power of two.
+		 */
+		private Integer stripes;
+
+		public Set<String> getNames() {
+			return this.names;
+		}
+
+		public List<Duration> getBuckets() {
+			return this.buckets;
+		}
+
+		public Integer getStripes() {
+			return this.stripes;
+		}
+
+		public void setStripes(Integer stripes) {
+			this.stripes = stripes;
+		}
+
+	}
+
+	/**
+	 * Interning of low cardinality key-values.
+	 */
+	public static class KeyValuesCache {
+
+		/**
+		 * Whether to intern low cardinality key-values and cache the meters recorded for
+		 * them.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum number of interned key-value combinations. Combinations beyond it are
+		 * recorded without caching.
+		 */
+		private int maxSize = 1000;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxSize() {
+			return this.maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+	}
+
+	/**
+	 * Compact tracking of in-flight observations.
+	 */
+	public static class ActiveTasks {
+
+		/**
+		 * Whether to track in-flight observations in a compact primitive structure
+		 * instead of a long task timer sample per observation. Requires a Tracer bean.
+		 * Replaces the '{name}.active' long task timer with the '{name}.active.tasks',
+		 * '{name}.active.duration', '{name}.active.max' and '{name}.active.percentile'
+		 * gauges, so dashboards and alerts on the former need to be updated.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum number of tracked in-flight observations per observation name and
+		 * key-values. Observations beyond it are counted as dropped.
+		 */
+		private int maxActive = 1 << 20;
+
+		/**
+		 * Percentiles of the in-flight durations to publish, in the range [0, 1].
+		 */
+		private final List<Double> percentiles = new ArrayList<>();
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxActive() {
+			return this.maxActive;
+		}
+
+		public void setMaxActive(int maxActive) {
+			this.maxActive = maxActive;
+		}
+
+		public List<Double> getPercentiles() {
+			return this.percentiles;
+		}
+
+	}
+
+}
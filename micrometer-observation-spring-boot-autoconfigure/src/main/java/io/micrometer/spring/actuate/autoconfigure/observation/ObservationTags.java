@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.observation.Observation;
+
+/**
+ * Creates the {@link Tags} of the meters recorded for an observation.
+ *
+ * @author Micrometer Team
+ */
+final class ObservationTags {
+
+	private ObservationTags() {
+	}
+
+	/**
+	 * Return the tags of the low cardinality key-values of the given context, looked up
+	 * from the given interner if there is one.
+	 * @param context the observation context
+	 * @param interner the interner or {@code null}
+	 * @return the tags
+	 */
+	static Tags of(Observation.Context context, KeyValuesInterner interner) {
+		return of(context.getLowCardinalityKeyValues(), interner);
+	}
+
+	/**
+	 * Return the tags of the given key-values, looked up from the given interner if there
+	 * is one.
+	 * @param keyValues the key-values
+	 * @param interner the interner or {@code null}
+	 * @return the tags
+	 */
+	static Tags of(KeyValues keyValues, KeyValuesInterner interner) {
+		return (interner != null) ? interner.intern(keyValues).getTags() : of(keyValues);
+	}
+
+	/**
+	 * Return the tags of the given key-values.
+	 * @param keyValues the key-values
+	 * @return the tags
+	 */
+	static Tags of(KeyValues keyValues) {
+		List<Tag> tags = new ArrayList<>();
+		for (KeyValue keyValue : keyValues) {
+			tags.add(Tag.of(keyValue.getKey(), keyValue.getValue()));
+		}
+		return Tags.of(tags);
+	}
+
+	/**
+	 * Return the value of the {@code error} tag of the given context.
+	 * @param context the observation context
+	 * @return the simple class name of the error or {@code none}
+	 */
+	static String error(Observation.Context context) {
+		Throwable error = context.getError();
+		return (error != null) ? error.getClass().getSimpleName() : "none";
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link MeterObservationHandler} that records each observation through the handler of
+ * the first {@link Route} matching it when the observation is started. Routes are
+ * resolved once at startup, so only the targeted registries are recorded into.
+ * Observations that do not match any route are recorded through the default handler.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class RoutingMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+	private final Route[] routes;
+
+	private final MeterObservationHandler<Observation.Context> defaultHandler;
+
+	/**
+	 * Create a new {@link RoutingMeterObservationHandler} instance.
+	 * @param routes the routes, in evaluation order
+	 * @param defaultHandler the handler for observations that do not match any route
+	 */
+	public RoutingMeterObservationHandler(List<Route> routes,
+			MeterObservationHandler<Observation.Context> defaultHandler) {
+		this.routes = routes.toArray(new Route[0]);
+		this.defaultHandler = defaultHandler;
+	}
+
+	@Override
+	public void onStart(Observation.Context context) {
+		MeterObservationHandler<Observation.Context> handler = route(context);
+		context.put(RoutingMeterObservationHandler.class, handler);
+		handler.onStart(context);
+	}
+
+	@Override
+	public void onError(Observation.Context context) {
+		getHandler(context).onError(context);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		getHandler(context).onEvent(event, context);
+	}
+
+	@Override
+	public void onScopeOpened(Observation.Context context) {
+		getHandler(context).onScopeOpened(context);
+	}
+
+	@Override
+	public void onScopeClosed(Observation.Context context) {
+		getHandler(context).onScopeClosed(context);
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		getHandler(context).onStop(context);
+	}
+
+	@Override
+	public boolean supportsContext(Observation.Context context) {
+		return this.defaultHandler.supportsContext(context);
+	}
+
+	private MeterObservationHandler<Observation.Context> route(Observation.Context context) {
+		for (Route route : this.routes) {
+			if (route.matches(context)) {
+				return route.handler;
+			}
+		}
+		return this.defaultHandler;
+	}
+
+	private MeterObservationHandler<Observation.Context> getHandler(Observation.Context context) {
+		return context.getOrDefault(RoutingMeterObservationHandler.class, this.defaultHandler);
+	}
+
+	/**
+	 * A rule binding observations to the {@link MeterObservationHandler} of a subset of
+	 * the registries.
+	 */
+	public static final class Route {
+
+		private final String namePrefix;
+
+		private final String[] keys;
+
+		private final String[] values;
+
+		private final MeterObservationHandler<Observation.Context> handler;
+
+		/**
+		 * Create a new {@link Route} instance.
+		 * @param namePrefix the prefix the observation name must start with or
+		 * {@code null} to match every name
+		 * @param keyValues the low cardinality key-values the observation must have
+		 * @param handler the handler for matching observations
+		 */
+		public Route(String namePrefix, Map<String, String> keyValues,
+				MeterObservationHandler<Observation.Context> handler) {
+			this.namePrefix = namePrefix;
+			this.keys = keyValues.keySet().toArray(new String[0]);
+			this.values = keyValues.values().toArray(new String[0]);
+			this.handler = handler;
+		}
+
+		boolean matches(Observation.Context context) {
+			if (this.namePrefix != null) {
+				String name = context.getName();
+				if (name == null || !name.startsWith(this.namePrefix)) {
+					return false;
+				}
+			}
+			for (int i = 0; i < this.keys.length; i++) {
+				KeyValue keyValue = context.getLowCardinalityKeyValue(this.keys[i]);
+				if (keyValue == null || !this.values[i].equals(keyValue.getValue())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.observation.Observation;
+
+/**
+ * {@link MeterObservationHandler} that records the timers of a fixed set of hot
+ * observation names into {@link StripedTimer striped accumulators}, including their
+ * histogram buckets, instead of the registry's shared timer state. The stripes are merged
+ * lazily when the registry publishes or is scraped. Other observations, as well as the
+ * events of every observation, are handled by the delegate.
+ * <p>
+ * Striped observations are exposed as a {@code FunctionTimer} and, when buckets are
+ * configured, as a family of cumulative {@code <name>.histogram} counters tagged with
+ * {@code le}, including {@code +Inf}. These counters are not the histogram of a
+ * {@code Timer}, so striped observations do not record a maximum or a long task timer,
+ * and the distribution configuration of meter filters, such as service level objectives
+ * and percentiles, does not apply to them.
+ *
+ * @author Micrometer Team
+ * @since 3.0.0
+ */
+public class StripedMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+	private final MeterObservationHandler<Observation.Context> delegate;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Clock clock;
+
+	private final Set<String> names;
+
+	private final long[] boundaries;
+
+	private final int stripes;
+
+	private final KeyValuesInterner interner;
+
+	private final ConcurrentMap<TimerKey, StripedTimer> timers = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link StripedMeterObservationHandler} instance.
+	 * @param delegate the handler for observations that are not striped
+	 * @param meterRegistry the registry the striped timers are registered with
+	 * @param names the names of the observations to stripe
+	 * @param buckets the histogram bucket boundaries
+	 * @param stripes the number of stripes per timer, rounded up to the next power of two
+	 */
+	public StripedMeterObservationHandler(MeterObservationHandler<Observation.Context> delegate,
+			MeterRegistry meterRegistry, Collection<String> names, List<Duration> buckets, int stripes) {
+		this(delegate, meterRegistry, names, buckets, stripes, null);
+	}
+
+	/**
+	 * Create a new {@link StripedMeterObservationHandler} instance.
+	 * @param delegate the handler for observations that are not striped
+	 * @param meterRegistry the registry the striped timers are registered with
+	 * @param names the names of the observations to stripe
+	 * @param buckets the histogram bucket boundaries
+	 * @param stripes the number of stripes per timer, rounded up to the next power of two
+	 * @param interner the interner used to look up the tags of low cardinality key-values
+	 * or {@code null}
+	 */
+	public StripedMeterObservationHandler(MeterObservationHandler<Observation.Context> delegate,
+			MeterRegistry meterRegistry, Collection<String> names, List<Duration> buckets, int stripes,
+			KeyValuesInterner interner) {
+		this.delegate = delegate;
+		this.meterRegistry = meterRegistry;
+		this.clock = meterRegistry.config().clock();
+		this.names = Set.copyOf(names);
+		this.boundaries = buckets.stream().mapToLong(Duration::toNanos).sorted().distinct().toArray();
+		this.stripes = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+		this.interner = interner;
+	}
+
+	@Override
+	public void onStart(Observation.Context context) {
+		if (this.names.contains(context.getName())) {
+			context.put(StripedMeterObservationHandler.class, this.clock.monotonicTime());
+		}
+		else {
+			this.delegate.onStart(context);
+		}
+	}
+
+	@Override
+	public void onError(Observation.Context context) {
+		this.delegate.onError(context);
+	}
+
+	@Override
+	public void onEvent(Observation.Event event, Observation.Context context) {
+		this.delegate.onEvent(event, context);
+	}
+
+	@Override
+	public void onScopeOpened(Observation.Context context) {
+		this.delegate.onScopeOpened(context);
+	}
+
+	@Override
+	public void onScopeClosed(Observation.Context context) {
+		this.delegate.onScopeClosed(context);
+	}
+
+	@Override
+	public void onStop(Observation.Context context) {
+		Long start = context.get(StripedMeterObservationHandler.class);
+		if (start == null) {
+			this.delegate.onStop(context);
+			return;
+		}
+		TimerKey key = new TimerKey(context.getName(), ObservationTags.error(context),
+				context.getLowCardinalityKeyValues());
+		StripedTimer timer = this.timers.get(key);
+		if (timer == null) {
+			timer = this.timers.computeIfAbsent(key, this::createTimer);
+		}
+		timer.record(this.clock.monotonicTime() - start);
+	}
+
+	@Override
+	public boolean supportsContext(Observation.Context context) {
+		return this.delegate.supportsContext(context);
+	}
+
+	private StripedTimer createTimer(TimerKey key) {
+		Tags tags = Tags.of("error", key.error()).and(ObservationTags.of(key.keyValues(), this.interner));
+		StripedTimer timer = new StripedTimer(this.boundaries, this.stripes);
+		timer.register(this.meterRegistry, key.name(), tags);
+		return timer;
+	}
+
+	private record TimerKey(String name, String error, KeyValues keyValues) {
+
+	}
+
+}
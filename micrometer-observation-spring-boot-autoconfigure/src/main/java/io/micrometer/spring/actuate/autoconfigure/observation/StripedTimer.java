@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Timer state split into per-thread stripes so that concurrent recordings do not contend
+ * on the same cache lines. The stripes are only merged when the registered
+ * {@link FunctionTimer} and histogram {@link FunctionCounter FunctionCounters} are read
+ * by the registry, that is on publish or scrape. Like
+ * {@link java.util.concurrent.atomic.LongAdder LongAdder}, a thread starts on a stripe
+ * picked by a hash of its id and moves to another stripe when an update contends with
+ * another thread. A stripe may still be shared by several threads, so all updates are
+ * atomic.
+ *
+ * @author Micrometer Team
+ */
+final class StripedTimer {
+
+	private static final int COUNT = 0;
+
+	private static final int TOTAL = 1;
+
+	private static final int BUCKETS = 2;
+
+	/**
+	 * Longs kept free between two stripes, a 64 byte cache line.
+	 */
+	private static final int PADDING = 8;
+
+	private static final ThreadLocal<Probe> PROBE = ThreadLocal.withInitial(Probe::new);
+
+	private final long[] boundaries;
+
+	private final int width;
+
+	private final int mask;
+
+	private final AtomicLongArray cells;
+
+	StripedTimer(long[] boundaries, int stripes) {
+		this.boundaries = boundaries;
+		this.width = BUCKETS + boundaries.length + PADDING;
+		this.mask = stripes - 1;
+		this.cells = new AtomicLongArray(stripes * this.width);
+	}
+
+	void register(MeterRegistry registry, String name, Tags tags) {
+		FunctionTimer.builder(name, this, StripedTimer::count, StripedTimer::totalTime, TimeUnit.NANOSECONDS).tags(tags)
+				.register(registry);
+		for (int i = 0; i < this.boundaries.length; i++) {
+			int bucket = i;
+			FunctionCounter.builder(name + ".histogram", this, (timer) -> timer.bucket(bucket)).tags(tags)
+					.tag("le", toLe(this.boundaries[i])).register(registry);
+		}
+		if (this.boundaries.length != 0) {
+			FunctionCounter.builder(name + ".histogram", this, StripedTimer::count).tags(tags).tag("le", "+Inf")
+					.register(registry);
+		}
+	}
+
+	/**
+	 * Format a bucket boundary in seconds the way Prometheus formats {@code le} labels,
+	 * that is the shortest representation with an exponent only below {@code 1e-4} and
+	 * from {@code 1e+06}.
+	 * @param nanos the boundary in nanoseconds
+	 * @return the formatted boundary
+	 */
+	static String toLe(long nanos) {
+		BigDecimal seconds = BigDecimal.valueOf(nanos, 9).stripTrailingZeros();
+		int exponent = seconds.precision() - seconds.scale() - 1;
+		if (exponent >= -4 && exponent < 6) {
+			return seconds.toPlainString();
+		}
+		String mantissa = seconds.movePointLeft(exponent).toPlainString();
+		return mantissa + ((exponent < 0) ? "e-" : "e+") + ((Math.abs(exponent) < 10) ? "0" : "") + Math.abs(exponent);
+	}
+
+	void record(long nanos) {
+		Probe probe = PROBE.get();
+		int base = (probe.value & this.mask) * this.width;
+		long count = this.cells.get(base + COUNT);
+		if (!this.cells.compareAndSet(base + COUNT, count, count + 1)) {
+			// Another thread updates the same stripe, use another one from now on
+			probe.advance();
+			this.cells.getAndIncrement(base + COUNT);
+		}
+		this.cells.getAndAdd(base + TOTAL, nanos);
+		for (int i = 0; i < this.boundaries.length; i++) {
+			if (nanos <= this.boundaries[i]) {
+				this.cells.getAndIncrement(base + BUCKETS + i);
+				break;
+			}
+		}
+	}
+
+	long count() {
+		return sum(COUNT);
+	}
+
+	double totalTime() {
+		return sum(TOTAL);
+	}
+
+	/**
+	 * Return the cumulative number of recordings that are less than or equal to the
+	 * boundary of the given bucket.
+	 * @param bucket the index of the bucket
+	 * @return the cumulative count
+	 */
+	long bucket(int bucket) {
+		long count = 0;
+		for (int i = 0; i <= bucket; i++) {
+			count += sum(BUCKETS + i);
+		}
+		return count;
+	}
+
+	private long sum(int offset) {
+		long sum = 0;
+		for (int base = 0; base < this.cells.length(); base += this.width) {
+			sum += this.cells.get(base + offset);
+		}
+		return sum;
+	}
+
+	/**
+	 * The stripe probe of a thread, shared by all striped timers.
+	 */
+	private static final class Probe {
+
+		private int value;
+
+		Probe() {
+			// Fibonacci hashing, so that thread ids that differ by a multiple of the
+			// number of stripes do not start on the same stripe
+			this.value = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) | 1;
+		}
+
+		void advance() {
+			int value = this.value;
+			value ^= value << 13;
+			value ^= value >>> 17;
+			value ^= value << 5;
+			this.value = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.autoconfigure.observation.MetricsRun;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ActiveObservationsEndpointAutoConfiguration}.
+ */
+class ActiveObservationsEndpointAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().with(MetricsRun.simple())
+			.withConfiguration(AutoConfigurations.of(ObservationAutoConfiguration.class,
+					ActiveObservationsEndpointAutoConfiguration.class))
+			.withUserConfiguration(TracerConfiguration.class);
+
+	@Test
+	void shouldSupplyEndpointIfActiveTasksAreTracked() {
+		this.contextRunner.withPropertyValues("management.observations.metrics.active-tasks.enabled=true",
+				"management.endpoints.web.exposure.include=activeobservations").run((context) -> {
+					assertThat(context).hasSingleBean(ActiveObservations.class);
+					assertThat(context).hasSingleBean(ActiveObservationsEndpoint.class);
+				});
+	}
+
+	@Test
+	void shouldNotSupplyEndpointIfActiveTasksAreNotTracked() {
+		this.contextRunner.withPropertyValues("management.endpoints.web.exposure.include=activeobservations")
+				.run((context) -> {
+					assertThat(context).doesNotHaveBean(ActiveObservations.class);
+					assertThat(context).doesNotHaveBean(ActiveObservationsEndpoint.class);
+				});
+	}
+
+	@Test
+	void shouldNotSupplyEndpointIfNotExposed() {
+		this.contextRunner.withPropertyValues("management.observations.metrics.active-tasks.enabled=true")
+				.run((context) -> assertThat(context).doesNotHaveBean(ActiveObservationsEndpoint.class));
+	}
+
+	@Test
+	void shouldNotSupplyEndpointIfTracerIsMissing() {
+		new ApplicationContextRunner().with(MetricsRun.simple())
+				.withConfiguration(AutoConfigurations.of(ObservationAutoConfiguration.class,
+						ActiveObservationsEndpointAutoConfiguration.class))
+				.withPropertyValues("management.observations.metrics.active-tasks.enabled=true",
+						"management.endpoints.web.exposure.include=activeobservations")
+				.run((context) -> {
+					assertThat(context).doesNotHaveBean(ActiveObservations.class);
+					assertThat(context).doesNotHaveBean(ActiveObservationsEndpoint.class);
+				});
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	private static class TracerConfiguration {
+
+		@Bean
+		Tracer tracer() {
+			return mock(Tracer.class);
+		}
+
+	}
+
+}
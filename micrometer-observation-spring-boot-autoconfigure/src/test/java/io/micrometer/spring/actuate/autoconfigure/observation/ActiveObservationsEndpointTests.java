@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ActiveObservationsEndpoint}.
+ */
+class ActiveObservationsEndpointTests {
+
+	@Test
+	void shouldDescribeOldestActiveObservations() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ActiveObservations activeObservations = new ActiveObservations(100, List.of());
+		ObservationRegistry observationRegistry = ObservationRegistry.create();
+		observationRegistry.observationConfig()
+				.observationHandler(new ActiveTaskTrackingMeterObservationHandler(
+						new CachingMeterObservationHandler(meterRegistry, new KeyValuesInterner(0), false),
+						meterRegistry, activeObservations));
+		Observation first = Observation.createNotStarted("session", observationRegistry)
+				.lowCardinalityKeyValue("type", "websocket").start();
+		Observation.createNotStarted("session", observationRegistry).lowCardinalityKeyValue("type", "websocket")
+				.start();
+		Observation.start("stream", observationRegistry);
+		first.stop();
+		ActiveObservationsEndpoint.ActiveObservationsDescriptor descriptor = new ActiveObservationsEndpoint(
+				activeObservations).activeObservations();
+		assertThat(descriptor.getObservations()).hasSize(2);
+		ActiveObservationsEndpoint.ActiveObservationDescriptor session = descriptor.getObservations().stream()
+				.filter((observation) -> observation.getName().equals("session")).findFirst().get();
+		assertThat(session.getKeyValues()).containsEntry("type", "websocket");
+		assertThat(session.getActiveTasks()).isEqualTo(1);
+		assertThat(session.getOldest()).hasSize(1);
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import io.micrometer.core.instrument.MockClock;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ActiveTaskTracker}.
+ */
+class ActiveTaskTrackerTests {
+
+	private final MockClock clock = new MockClock();
+
+	@Test
+	void shouldComputeDurationsOfActiveTasks() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 100, 0.5);
+		int first = tracker.start();
+		this.clock.add(Duration.ofSeconds(1));
+		int second = tracker.start();
+		this.clock.add(Duration.ofSeconds(1));
+		tracker.start();
+		this.clock.add(Duration.ofSeconds(1));
+		assertThat(tracker.activeTasks()).isEqualTo(3);
+		ActiveTaskTracker.Snapshot snapshot = tracker.snapshot();
+		assertThat(snapshot.duration()).isEqualTo(Duration.ofSeconds(6).toNanos());
+		assertThat(snapshot.max()).isEqualTo(Duration.ofSeconds(3).toNanos());
+		assertThat(snapshot.percentile(0)).isEqualTo(Duration.ofSeconds(2).toNanos());
+		assertThat(snapshot.oldest()).containsExactly(Duration.ofSeconds(3).toNanos(), Duration.ofSeconds(2).toNanos(),
+				Duration.ofSeconds(1).toNanos());
+		tracker.stop(first);
+		tracker.stop(second);
+		this.clock.add(Duration.ofSeconds(1));
+		assertThat(tracker.activeTasks()).isEqualTo(1);
+		assertThat(tracker.snapshot().max()).isEqualTo(Duration.ofSeconds(2).toNanos());
+	}
+
+	@Test
+	void shouldReuseSnapshotWithinTimeToLive() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 100);
+		tracker.start();
+		this.clock.add(Duration.ofSeconds(1));
+		ActiveTaskTracker.Snapshot snapshot = tracker.snapshot();
+		tracker.start();
+		this.clock.add(Duration.ofMillis(500));
+		assertThat(tracker.snapshot()).isSameAs(snapshot);
+		this.clock.add(Duration.ofMillis(500));
+		assertThat(tracker.snapshot()).isNotSameAs(snapshot);
+		assertThat(tracker.snapshot().oldest()).hasSize(2);
+	}
+
+	@Test
+	void shouldKeepOnlyOldestTasks() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 100, 0.5, 0.99);
+		for (int i = 0; i < 50; i++) {
+			tracker.start();
+			this.clock.add(Duration.ofSeconds(1));
+		}
+		ActiveTaskTracker.Snapshot snapshot = tracker.snapshot();
+		assertThat(snapshot.oldest()).hasSize(ActiveTaskTracker.OLDEST).startsWith(Duration.ofSeconds(50).toNanos(),
+				Duration.ofSeconds(49).toNanos());
+		assertThat(snapshot.oldest()[ActiveTaskTracker.OLDEST - 1]).isEqualTo(Duration.ofSeconds(41).toNanos());
+		assertThat(snapshot.percentile(0)).isEqualTo(Duration.ofSeconds(25).toNanos());
+		assertThat(snapshot.percentile(1)).isEqualTo(Duration.ofSeconds(50).toNanos());
+	}
+
+	@Test
+	void shouldReuseSlotsOfStoppedTasks() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 1024);
+		for (int i = 0; i < 10_000; i++) {
+			tracker.stop(tracker.start());
+		}
+		Set<Integer> slots = new HashSet<>();
+		for (int i = 0; i < 1024; i++) {
+			slots.add(tracker.start());
+		}
+		assertThat(slots).hasSize(1024).doesNotContain(ActiveTaskTracker.NO_SLOT);
+		assertThat(tracker.start()).isEqualTo(ActiveTaskTracker.NO_SLOT);
+		assertThat(tracker.droppedTasks()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldAddSegmentsWhenCrowded() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 4096);
+		Set<Integer> slots = new HashSet<>();
+		for (int i = 0; i < 4096; i++) {
+			slots.add(tracker.start());
+		}
+		assertThat(slots).hasSize(4096).doesNotContain(ActiveTaskTracker.NO_SLOT);
+		assertThat(tracker.activeTasks()).isEqualTo(4096);
+	}
+
+	@Test
+	void shouldStartWithSmallSegment() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 1 << 20);
+		assertThat(tracker.capacity()).isEqualTo(ActiveTaskTracker.INITIAL_SEGMENT_SIZE);
+		for (int i = 0; i < ActiveTaskTracker.INITIAL_SEGMENT_SIZE + 1; i++) {
+			tracker.start();
+		}
+		assertThat(tracker.capacity()).isEqualTo(3 * ActiveTaskTracker.INITIAL_SEGMENT_SIZE);
+	}
+
+	@Test
+	void shouldReleaseEmptySegmentsAfterPeak() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 1 << 20);
+		List<Integer> slots = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			slots.add(tracker.start());
+		}
+		assertThat(tracker.capacity()).isGreaterThanOrEqualTo(10_000);
+		slots.forEach(tracker::stop);
+		int first = tracker.start();
+		tracker.snapshot();
+		assertThat(tracker.capacity()).isEqualTo(ActiveTaskTracker.INITIAL_SEGMENT_SIZE);
+		assertThat(tracker.activeTasks()).isEqualTo(1);
+		tracker.stop(first);
+		assertThat(tracker.activeTasks()).isZero();
+	}
+
+	@Test
+	void shouldNotReleaseSegmentsHoldingTasks() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 1 << 20);
+		List<Integer> slots = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			slots.add(tracker.start());
+		}
+		int last = slots.stream().mapToInt(Integer::intValue).max().getAsInt();
+		slots.stream().filter((slot) -> slot != last).forEach(tracker::stop);
+		int capacity = tracker.capacity();
+		this.clock.add(Duration.ofSeconds(1));
+		assertThat(tracker.snapshot().max()).isEqualTo(Duration.ofSeconds(1).toNanos());
+		assertThat(tracker.capacity()).isEqualTo(capacity);
+		tracker.stop(last);
+		this.clock.add(Duration.ofSeconds(1));
+		assertThat(tracker.snapshot().max()).isZero();
+		assertThat(tracker.capacity()).isEqualTo(ActiveTaskTracker.INITIAL_SEGMENT_SIZE);
+	}
+
+	@Test
+	void shouldNotDropTasksWhenSegmentsAreAddedConcurrently() throws InterruptedException {
+		int threads = 8;
+		int tasks = 512;
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, threads * tasks);
+		Set<Integer> slots = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Thread worker = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				for (int j = 0; j < tasks; j++) {
+					slots.add(tracker.start());
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertThat(slots).hasSize(threads * tasks).doesNotContain(ActiveTaskTracker.NO_SLOT);
+		assertThat(tracker.droppedTasks()).isZero();
+	}
+
+	@Test
+	void shouldReturnZeroWhenNoTaskIsActive() {
+		ActiveTaskTracker tracker = new ActiveTaskTracker(this.clock, 100, 0.99);
+		ActiveTaskTracker.Snapshot snapshot = tracker.snapshot();
+		assertThat(snapshot.duration()).isZero();
+		assertThat(snapshot.max()).isZero();
+		assertThat(snapshot.percentile(0)).isZero();
+		assertThat(snapshot.oldest()).isEmpty();
+	}
+
+}
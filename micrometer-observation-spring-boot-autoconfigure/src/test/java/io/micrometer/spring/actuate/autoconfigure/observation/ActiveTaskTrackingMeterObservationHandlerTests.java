@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ActiveTaskTrackingMeterObservationHandler}.
+ */
+class ActiveTaskTrackingMeterObservationHandlerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	ActiveTaskTrackingMeterObservationHandlerTests() {
+		this.observationRegistry.observationConfig()
+				.observationHandler(new ActiveTaskTrackingMeterObservationHandler(
+						new CachingMeterObservationHandler(this.meterRegistry, new KeyValuesInterner(0), false),
+						this.meterRegistry, new ActiveObservations(100, List.of(0.5))));
+	}
+
+	@Test
+	void shouldTrackActiveObservationsInsteadOfLongTaskTimer() {
+		Observation first = Observation.createNotStarted("session", this.observationRegistry)
+				.lowCardinalityKeyValue("type", "websocket").start();
+		Observation.createNotStarted("session", this.observationRegistry).lowCardinalityKeyValue("type", "websocket")
+				.start();
+		first.stop();
+		assertThat(this.meterRegistry.get("session.active.tasks").tag("type", "websocket").gauge().value())
+				.isEqualTo(1);
+		assertThat(
+				this.meterRegistry.get("session.active.percentile").tags("type", "websocket", "phi", "0.5").timeGauge())
+						.isNotNull();
+		assertThat(this.meterRegistry.find("session.active").longTaskTimer()).isNull();
+	}
+
+	@Test
+	void shouldDelegateTimersAndEvents() {
+		Observation observation = Observation.createNotStarted("session", this.observationRegistry)
+				.lowCardinalityKeyValue("type", "websocket").start();
+		observation.event(Observation.Event.of("message"));
+		observation.stop();
+		assertThat(this.meterRegistry.get("session").tags("type", "websocket", "error", "none").timer().count())
+				.isEqualTo(1);
+		assertThat(this.meterRegistry.get("session.message").tag("type", "websocket").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("session.active.tasks").tag("type", "websocket").gauge().value()).isZero();
+	}
+
+}
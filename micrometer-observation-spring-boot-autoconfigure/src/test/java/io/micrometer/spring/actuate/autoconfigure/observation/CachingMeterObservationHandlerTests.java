@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CachingMeterObservationHandler}.
+ */
+class CachingMeterObservationHandlerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	CachingMeterObservationHandlerTests() {
+		this.observationRegistry.observationConfig()
+				.observationHandler(new CachingMeterObservationHandler(this.meterRegistry, new KeyValuesInterner(1)));
+	}
+
+	@Test
+	void shouldRecordSameMetersAsDefaultHandler() {
+		for (int i = 0; i < 3; i++) {
+			Observation observation = Observation.createNotStarted("job", this.observationRegistry)
+					.lowCardinalityKeyValue("type", "batch").start();
+			observation.event(Observation.Event.of("item"));
+			observation.stop();
+		}
+		assertThat(this.meterRegistry.get("job").tags("type", "batch", "error", "none").timer().count()).isEqualTo(3);
+		assertThat(this.meterRegistry.get("job.active").tags("type", "batch").longTaskTimer().activeTasks())
+				.isEqualTo(0);
+		assertThat(this.meterRegistry.get("job.item").tags("type", "batch").counter().count()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldRecordKeyValuesBeyondInternerMaxSize() {
+		Observation.createNotStarted("job", this.observationRegistry).lowCardinalityKeyValue("type", "batch").start()
+				.stop();
+		Observation.createNotStarted("job", this.observationRegistry).lowCardinalityKeyValue("type", "stream").start()
+				.stop();
+		Observation.createNotStarted("job", this.observationRegistry).lowCardinalityKeyValue("type", "stream").start()
+				.stop();
+		assertThat(this.meterRegistry.get("job").tags("type", "batch").timer().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("job").tags("type", "stream").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldTagErrors() {
+		Observation observation = Observation.start("job", this.observationRegistry);
+		observation.error(new IllegalStateException());
+		observation.stop();
+		assertThat(this.meterRegistry.get("job").tags("error", "IllegalStateException").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldTagMetersWithKeyValuesAddedBeforeStop() {
+		Observation observation = Observation.createNotStarted("job", this.observationRegistry)
+				.lowCardinalityKeyValue("type", "batch").start();
+		observation.event(Observation.Event.of("item"));
+		observation.lowCardinalityKeyValue("outcome", "success");
+		observation.event(Observation.Event.of("item"));
+		observation.stop();
+		assertThat(this.meterRegistry.get("job").tags("type", "batch", "outcome", "success").timer().count())
+				.isEqualTo(1);
+		assertThat(this.meterRegistry.get("job.item").tags("type", "batch").counters()).hasSize(2);
+	}
+
+	@Test
+	void shouldRegisterRemovedMetersAgain() {
+		Observation observation = Observation.start("job", this.observationRegistry);
+		observation.event(Observation.Event.of("item"));
+		observation.stop();
+		observation = Observation.start("job", this.observationRegistry);
+		this.meterRegistry.remove(this.meterRegistry.get("job").timer());
+		this.meterRegistry.remove(this.meterRegistry.get("job.item").counter());
+		observation.event(Observation.Event.of("item"));
+		observation.stop();
+		assertThat(this.meterRegistry.get("job").timer().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("job.item").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRegisterClearedMetersAgain() {
+		Observation.start("job", this.observationRegistry).stop();
+		this.meterRegistry.clear();
+		Observation observation = Observation.start("job", this.observationRegistry);
+		assertThat(this.meterRegistry.get("job.active").longTaskTimer().activeTasks()).isEqualTo(1);
+		observation.stop();
+		assertThat(this.meterRegistry.get("job").timer().count()).isEqualTo(1);
+	}
+
+}
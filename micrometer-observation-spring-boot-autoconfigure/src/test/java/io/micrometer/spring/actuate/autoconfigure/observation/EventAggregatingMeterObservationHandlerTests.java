@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link EventAggregatingMeterObservationHandler}.
+ */
+class EventAggregatingMeterObservationHandlerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	EventAggregatingMeterObservationHandlerTests() {
+		this.observationRegistry.observationConfig().observationHandler(new EventAggregatingMeterObservationHandler(
+				new DefaultMeterObservationHandler(this.meterRegistry), this.meterRegistry));
+	}
+
+	@Test
+	void shouldIncrementCountersOnceOnStop() {
+		Observation observation = Observation.createNotStarted("job", this.observationRegistry)
+				.lowCardinalityKeyValue("type", "batch").start();
+		for (int i = 0; i < 1000; i++) {
+			observation.event(Observation.Event.of("item"));
+		}
+		observation.event(Observation.Event.of("done"));
+		assertThat(this.meterRegistry.find("job.item").counter()).isNull();
+		observation.stop();
+		assertThat(this.meterRegistry.get("job.item").tag("type", "batch").counter().count()).isEqualTo(1000);
+		assertThat(this.meterRegistry.get("job.done").counter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("job").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldTagCountersWithKeyValuesOfFirstOccurrence() {
+		Observation observation = Observation.start("http", this.observationRegistry);
+		observation.event(Observation.Event.of("retry"));
+		observation.lowCardinalityKeyValue("outcome", "SUCCESS");
+		observation.event(Observation.Event.of("retry"));
+		observation.stop();
+		Counter counter = this.meterRegistry.get("http.retry").counter();
+		assertThat(counter.getId().getTags()).isEmpty();
+		assertThat(counter.count()).isEqualTo(2);
+		assertThat(this.meterRegistry.get("http").tag("outcome", "SUCCESS").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldLookUpTagsFromInterner() {
+		KeyValuesInterner interner = new KeyValuesInterner(10);
+		ObservationRegistry observationRegistry = ObservationRegistry.create();
+		observationRegistry.observationConfig().observationHandler(new EventAggregatingMeterObservationHandler(
+				new DefaultMeterObservationHandler(this.meterRegistry), this.meterRegistry, interner));
+		for (int i = 0; i < 2; i++) {
+			Observation.createNotStarted("job", observationRegistry).lowCardinalityKeyValue("type", "batch").start()
+					.event(Observation.Event.of("item")).stop();
+		}
+		assertThat(interner.size()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("job.item").tag("type", "batch").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldNotRegisterCountersWithoutEvents() {
+		Observation.start("job", this.observationRegistry).stop();
+		assertThat(this.meterRegistry.getMeters())
+				.noneMatch((meter) -> meter instanceof Counter && meter.getId().getName().startsWith("job."));
+	}
+
+}
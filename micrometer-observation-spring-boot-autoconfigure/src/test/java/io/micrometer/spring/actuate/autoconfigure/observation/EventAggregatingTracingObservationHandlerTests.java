@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link EventAggregatingTracingObservationHandler}.
+ */
+class EventAggregatingTracingObservationHandlerTests {
+
+	private final List<MutableSpan> spans = new ArrayList<>();
+
+	private final Tracing tracing = Tracing.newBuilder().addSpanHandler(new SpanHandler() {
+
+		@Override
+		public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+			EventAggregatingTracingObservationHandlerTests.this.spans.add(span);
+			return true;
+		}
+
+	}).build();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	EventAggregatingTracingObservationHandlerTests() {
+		BraveTracer tracer = new BraveTracer(this.tracing.tracer(),
+				new BraveCurrentTraceContext(this.tracing.currentTraceContext()), new BraveBaggageManager());
+		this.observationRegistry.observationConfig()
+				.observationHandler(new EventAggregatingTracingObservationHandler(tracer));
+	}
+
+	@AfterEach
+	void close() {
+		this.tracing.close();
+	}
+
+	@Test
+	void shouldAddAggregatedSpanEventsOnStop() {
+		Observation observation = Observation.start("job", this.observationRegistry);
+		for (int i = 0; i < 1000; i++) {
+			observation.event(Observation.Event.of("item"));
+		}
+		observation.event(Observation.Event.of("done"));
+		observation.stop();
+		assertThat(this.spans).hasSize(1);
+		MutableSpan span = this.spans.get(0);
+		assertThat(span.annotationCount()).isEqualTo(3);
+		assertThat(span.annotationValueAt(0)).isEqualTo("item");
+		assertThat(span.annotationValueAt(1)).isEqualTo("item");
+		assertThat(span.annotationTimestampAt(0)).isLessThanOrEqualTo(span.annotationTimestampAt(1));
+		assertThat(span.annotationValueAt(2)).isEqualTo("done");
+		assertThat(span.tag("item.count")).isEqualTo("1000");
+		assertThat(span.tag("done.count")).isEqualTo("1");
+	}
+
+}
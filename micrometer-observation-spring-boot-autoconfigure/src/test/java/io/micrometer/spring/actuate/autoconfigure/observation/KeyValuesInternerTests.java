@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Tags;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link KeyValuesInterner}.
+ */
+class KeyValuesInternerTests {
+
+	private final KeyValuesInterner interner = new KeyValuesInterner(2);
+
+	@Test
+	void shouldInternEqualKeyValuesToSameInstance() {
+		KeyValuesInterner.InternedKeyValues first = this.interner.intern(KeyValues.of("b", "2", "a", "1"));
+		KeyValuesInterner.InternedKeyValues second = this.interner.intern(KeyValues.of("a", "1", "b", "2"));
+		assertThat(first).isSameAs(second);
+		assertThat(first.isCanonical()).isTrue();
+		assertThat(first.getTags()).isEqualTo(Tags.of("a", "1", "b", "2"));
+		assertThat(this.interner.size()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldNotInternBeyondMaxSize() {
+		this.interner.intern(KeyValues.of("a", "1"));
+		this.interner.intern(KeyValues.of("a", "2"));
+		KeyValuesInterner.InternedKeyValues first = this.interner.intern(KeyValues.of("a", "3"));
+		KeyValuesInterner.InternedKeyValues second = this.interner.intern(KeyValues.of("a", "3"));
+		assertThat(first).isNotSameAs(second).isEqualTo(second).hasSameHashCodeAs(second);
+		assertThat(first.isCanonical()).isFalse();
+		assertThat(this.interner.size()).isEqualTo(2);
+	}
+
+}
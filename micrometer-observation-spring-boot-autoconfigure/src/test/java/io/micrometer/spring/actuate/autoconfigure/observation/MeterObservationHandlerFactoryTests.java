@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link MeterObservationHandlerFactory}.
+ */
+class MeterObservationHandlerFactoryTests {
+
+	private final MeterRegistry first = new SimpleMeterRegistry();
+
+	private final MeterRegistry second = new SimpleMeterRegistry();
+
+	private final MeterRegistry third = new SimpleMeterRegistry();
+
+	private final CompositeMeterRegistry primary = new CompositeMeterRegistry().add(this.first).add(this.second)
+			.add(this.third);
+
+	private final ObservationMetricsProperties properties = new ObservationMetricsProperties();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	@Test
+	void shouldRecordRoutedObservationsOnlyIntoTheirRegistries() {
+		addRoute("http.", null, "first");
+		addRoute(null, "batch", "first", "second");
+		MeterObservationHandlerFactory factory = createFactory();
+		this.observationRegistry.observationConfig().observationHandler(factory.create(this.primary));
+		Observation.start("http.server.requests", this.observationRegistry).stop();
+		Observation.createNotStarted("jobs", this.observationRegistry).lowCardinalityKeyValue("tier", "batch").start()
+				.stop();
+		Observation.start("tasks", this.observationRegistry).stop();
+		assertThat(this.first.find("http.server.requests").timer()).isNotNull();
+		assertThat(this.second.find("http.server.requests").timer()).isNull();
+		assertThat(this.third.find("http.server.requests").timer()).isNull();
+		assertThat(this.first.find("jobs").timer()).isNotNull();
+		assertThat(this.second.find("jobs").timer()).isNotNull();
+		assertThat(this.third.find("jobs").timer()).isNull();
+		assertThat(this.first.find("tasks").timer()).isNotNull();
+		assertThat(this.second.find("tasks").timer()).isNotNull();
+		assertThat(this.third.find("tasks").timer()).isNotNull();
+	}
+
+	@Test
+	void shouldNotCloseTargetRegistriesWhenDestroyed() {
+		addRoute(null, "batch", "first", "second");
+		MeterObservationHandlerFactory factory = createFactory();
+		this.observationRegistry.observationConfig().observationHandler(factory.create(this.primary));
+		factory.destroy();
+		assertThat(this.first.isClosed()).isFalse();
+		assertThat(this.second.isClosed()).isFalse();
+	}
+
+	@Test
+	void shouldTrackActiveTasksOnTopOfCachedMeters() {
+		KeyValuesInterner interner = new KeyValuesInterner(10);
+		ActiveObservations activeObservations = new ActiveObservations(100, List.of());
+		MeterObservationHandlerFactory factory = createFactory(interner, activeObservations);
+		this.observationRegistry.observationConfig().observationHandler(factory.create(this.first));
+		for (int i = 0; i < 3; i++) {
+			Observation.createNotStarted("jobs", this.observationRegistry).lowCardinalityKeyValue("tier", "batch")
+					.start().stop();
+		}
+		Observation.createNotStarted("jobs", this.observationRegistry).lowCardinalityKeyValue("tier", "batch").start();
+		assertThat(interner.size()).isEqualTo(1);
+		assertThat(this.first.find("jobs.active").longTaskTimer()).isNull();
+		assertThat(this.first.get("jobs.active.tasks").tag("tier", "batch").gauge().value()).isEqualTo(1);
+		assertThat(this.first.get("jobs").tags("tier", "batch", "error", "none").timer().count()).isEqualTo(3);
+	}
+
+	private void addRoute(String namePrefix, String tier, String... registries) {
+		ObservationMetricsProperties.Route route = new ObservationMetricsProperties.Route();
+		route.setNamePrefix(namePrefix);
+		if (tier != null) {
+			route.getKeyValues().put("tier", tier);
+		}
+		route.getRegistries().addAll(List.of(registries));
+		this.properties.getRoutes().add(route);
+	}
+
+	private MeterObservationHandlerFactory createFactory() {
+		return createFactory(null, null);
+	}
+
+	private MeterObservationHandlerFactory createFactory(KeyValuesInterner interner,
+			ActiveObservations activeObservations) {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("first", this.first);
+		beanFactory.addBean("second", this.second);
+		beanFactory.addBean("third", this.third);
+		return new MeterObservationHandlerFactory(this.properties, new ObservationEventsProperties(), interner,
+				activeObservations, beanFactory);
+	}
+
+}
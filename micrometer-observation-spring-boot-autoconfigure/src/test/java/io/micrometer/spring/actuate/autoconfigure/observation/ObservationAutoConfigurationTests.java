@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.TracingAwareMeterObservationHandler;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.autoconfigure.observation.MetricsRun;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ObservationAutoConfiguration}.
+ */
+class ObservationAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().with(MetricsRun.simple())
+			.withConfiguration(AutoConfigurations.of(ObservationAutoConfiguration.class));
+
+	@Test
+	void shouldSupplyBeans() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class).run((context) -> {
+			assertThat(context).hasSingleBean(TracingAwareMeterObservationHandler.class);
+			assertThat(context).hasSingleBean(ObservationMetricsProperties.class);
+		});
+	}
+
+	@Test
+	void shouldSupplyKeyValuesInternerIfEnabled() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class)
+				.withPropertyValues("management.observations.metrics.key-values-cache.enabled=true")
+				.run((context) -> assertThat(context).hasSingleBean(KeyValuesInterner.class));
+	}
+
+	@Test
+	void shouldNotSupplyKeyValuesInternerByDefault() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class)
+				.run((context) -> assertThat(context).doesNotHaveBean(KeyValuesInterner.class));
+	}
+
+	@Test
+	void shouldSupplyActiveObservationsIfEnabled() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class)
+				.withPropertyValues("management.observations.metrics.active-tasks.enabled=true",
+						"management.observations.metrics.active-tasks.percentiles=0.5,0.99")
+				.run((context) -> {
+					assertThat(context).hasSingleBean(ActiveObservations.class);
+					assertThat(context).hasSingleBean(TracingAwareMeterObservationHandler.class);
+				});
+	}
+
+	@Test
+	void shouldNotSupplyBeansIfTracerIsMissing() {
+		this.contextRunner.run((context) -> assertThat(context).doesNotHaveBean(MeterObservationHandler.class));
+	}
+
+	@Test
+	void shouldSupplyBeansWithRoutes() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class, RegistriesConfiguration.class)
+				.withPropertyValues("management.observations.metrics.routes[0].name-prefix=http.",
+						"management.observations.metrics.routes[0].registries=first",
+						"management.observations.metrics.routes[1].key-values.tier=batch",
+						"management.observations.metrics.routes[1].registries=first,second")
+				.run((context) -> assertThat(context).hasSingleBean(TracingAwareMeterObservationHandler.class));
+	}
+
+	@Test
+	void shouldFailIfRouteTargetsUnknownRegistry() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class)
+				.withPropertyValues("management.observations.metrics.routes[0].name-prefix=http.",
+						"management.observations.metrics.routes[0].registries=unknown")
+				.run((context) -> assertThat(context).getFailure()
+						.hasRootCauseInstanceOf(InvalidConfigurationPropertyValueException.class));
+	}
+
+	@Test
+	void shouldFailIfRouteHasNoRegistries() {
+		this.contextRunner.withUserConfiguration(TracerConfiguration.class)
+				.withPropertyValues("management.observations.metrics.routes[0].name-prefix=http.")
+				.run((context) -> assertThat(context).getFailure()
+						.hasRootCauseInstanceOf(InvalidConfigurationPropertyValueException.class));
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	private static class TracerConfiguration {
+
+		@Bean
+		Tracer tracer() {
+			return mock(Tracer.class);
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	private static class RegistriesConfiguration {
+
+		@Bean
+		MeterRegistry first() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		MeterRegistry second() {
+			return new SimpleMeterRegistry();
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.SenderContext;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingSenderTracingObservationHandler;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.autoconfigure.tracing.BraveAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ObservationEventsAutoConfiguration}.
+ */
+class ObservationEventsAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(ObservationEventsAutoConfiguration.class,
+					BraveAutoConfiguration.class, MicrometerTracingAutoConfiguration.class));
+
+	@Test
+	void shouldSupplyEventAggregatingTracingHandler() {
+		this.contextRunner.withPropertyValues("management.observations.events.aggregate=true")
+				.run((context) -> assertThat(context).hasSingleBean(DefaultTracingObservationHandler.class)
+						.getBean(DefaultTracingObservationHandler.class)
+						.isInstanceOf(EventAggregatingTracingObservationHandler.class));
+	}
+
+	@Test
+	void shouldSupplyEventAggregatingPropagatingHandlers() {
+		this.contextRunner.withUserConfiguration(SpanHandlerConfiguration.class)
+				.withPropertyValues("management.observations.events.aggregate=true",
+						"management.tracing.sampling.probability=1.0")
+				.run((context) -> {
+					assertThat(context).getBean(PropagatingSenderTracingObservationHandler.class)
+							.isInstanceOf(EventAggregatingPropagatingSenderTracingObservationHandler.class);
+					assertThat(context).getBean(PropagatingReceiverTracingObservationHandler.class)
+							.isInstanceOf(EventAggregatingPropagatingReceiverTracingObservationHandler.class);
+					ObservationRegistry observationRegistry = ObservationRegistry.create();
+					observationRegistry.observationConfig()
+							.observationHandler(new ObservationHandler.FirstMatchingCompositeObservationHandler(
+									context.getBean(PropagatingSenderTracingObservationHandler.class),
+									context.getBean(PropagatingReceiverTracingObservationHandler.class),
+									context.getBean(DefaultTracingObservationHandler.class)));
+					SenderContext<Map<String, String>> senderContext = new SenderContext<>(
+							(carrier, key, value) -> carrier.put(key, value));
+					senderContext.setCarrier(new HashMap<>());
+					Observation observation = Observation
+							.createNotStarted("http.client.requests", () -> senderContext, observationRegistry).start();
+					for (int i = 0; i < 5; i++) {
+						observation.event(Observation.Event.of("retry"));
+					}
+					observation.stop();
+					List<MutableSpan> spans = context.getBean(SpanHandlerConfiguration.class).spans;
+					assertThat(spans).hasSize(1);
+					assertThat(spans.get(0).annotationCount()).isEqualTo(2);
+					assertThat(spans.get(0).tag("retry.count")).isEqualTo("5");
+					assertThat(senderContext.getCarrier()).isNotEmpty();
+				});
+	}
+
+	@Test
+	void shouldNotSupplyBeansIfAggregationIsNotEnabled() {
+		this.contextRunner.run((context) -> {
+			assertThat(context).hasSingleBean(DefaultTracingObservationHandler.class);
+			assertThat(context).doesNotHaveBean(EventAggregatingTracingObservationHandler.class);
+		});
+	}
+
+	@Test
+	void shouldNotSupplyBeansIfTracingIsDisabled() {
+		this.contextRunner
+				.withPropertyValues("management.observations.events.aggregate=true", "management.tracing.enabled=false")
+				.run((context) -> assertThat(context).doesNotHaveBean(EventAggregatingTracingObservationHandler.class));
+	}
+
+	@Test
+	void shouldNotSupplyBeansIfMicrometerTracingIsMissing() {
+		this.contextRunner.withPropertyValues("management.observations.events.aggregate=true")
+				.withClassLoader(new FilteredClassLoader("io.micrometer.tracing"))
+				.run((context) -> assertThat(context).doesNotHaveBean(EventAggregatingTracingObservationHandler.class));
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	static class SpanHandlerConfiguration {
+
+		private final List<MutableSpan> spans = new ArrayList<>();
+
+		@Bean
+		SpanHandler spanHandler() {
+			return new SpanHandler() {
+
+				@Override
+				public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+					SpanHandlerConfiguration.this.spans.add(span);
+					return true;
+				}
+
+			};
+		}
+
+	}
+
+}
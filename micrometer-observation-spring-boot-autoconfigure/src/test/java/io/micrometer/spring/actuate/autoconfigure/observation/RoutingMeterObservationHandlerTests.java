@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link RoutingMeterObservationHandler}.
+ */
+class RoutingMeterObservationHandlerTests {
+
+	private final MeterRegistry first = new SimpleMeterRegistry();
+
+	private final MeterRegistry second = new SimpleMeterRegistry();
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	RoutingMeterObservationHandlerTests() {
+		CompositeMeterRegistry composite = new CompositeMeterRegistry().add(this.first).add(this.second);
+		List<RoutingMeterObservationHandler.Route> routes = List.of(
+				new RoutingMeterObservationHandler.Route("http.", Collections.emptyMap(),
+						new DefaultMeterObservationHandler(this.first)),
+				new RoutingMeterObservationHandler.Route(null, Collections.singletonMap("target", "second"),
+						new DefaultMeterObservationHandler(this.second)));
+		this.observationRegistry.observationConfig().observationHandler(
+				new RoutingMeterObservationHandler(routes, new DefaultMeterObservationHandler(composite)));
+	}
+
+	@Test
+	void shouldRecordIntoRegistryOfMatchingNamePrefix() {
+		Observation.start("http.server.requests", this.observationRegistry).stop();
+		assertThat(this.first.find("http.server.requests").timer()).isNotNull();
+		assertThat(this.second.find("http.server.requests").timer()).isNull();
+	}
+
+	@Test
+	void shouldRecordIntoRegistryOfMatchingKeyValues() {
+		Observation.createNotStarted("jobs", this.observationRegistry).lowCardinalityKeyValue("target", "second")
+				.start().stop();
+		assertThat(this.first.find("jobs").timer()).isNull();
+		assertThat(this.second.find("jobs").timer()).isNotNull();
+	}
+
+	@Test
+	void shouldRecordIntoEveryRegistryWhenNoRouteMatches() {
+		Observation.start("jobs", this.observationRegistry).stop();
+		assertThat(this.first.find("jobs").timer()).isNotNull();
+		assertThat(this.second.find("jobs").timer()).isNotNull();
+	}
+
+	@Test
+	void shouldUseFirstMatchingRoute() {
+		Observation.createNotStarted("http.client.requests", this.observationRegistry)
+				.lowCardinalityKeyValue("target", "second").start().stop();
+		assertThat(this.first.find("http.client.requests").timer()).isNotNull();
+		assertThat(this.second.find("http.client.requests").timer()).isNull();
+	}
+
+}
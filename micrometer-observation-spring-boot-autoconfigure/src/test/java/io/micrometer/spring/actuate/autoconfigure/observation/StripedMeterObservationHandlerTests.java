@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.actuate.autoconfigure.observation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StripedMeterObservationHandler}.
+ */
+class StripedMeterObservationHandlerTests {
+
+	private final MockClock clock = new MockClock();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, this.clock);
+
+	private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+	StripedMeterObservationHandlerTests() {
+		this.observationRegistry.observationConfig()
+				.observationHandler(new StripedMeterObservationHandler(
+						new DefaultMeterObservationHandler(this.meterRegistry), this.meterRegistry, Set.of("hot"),
+						List.of(Duration.ofMillis(100), Duration.ofMillis(10)), 3));
+	}
+
+	@Test
+	void shouldRecordStripedObservationsIntoFunctionTimer() {
+		record(Duration.ofMillis(5));
+		record(Duration.ofMillis(50));
+		record(Duration.ofMillis(500));
+		FunctionTimer timer = this.meterRegistry.get("hot").tag("error", "none").functionTimer();
+		assertThat(timer.count()).isEqualTo(3);
+		assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(555);
+		assertThat(this.meterRegistry.find("hot.active").longTaskTimer()).isNull();
+	}
+
+	@Test
+	void shouldRecordCumulativeHistogramBuckets() {
+		record(Duration.ofMillis(5));
+		record(Duration.ofMillis(50));
+		record(Duration.ofMillis(500));
+		assertThat(this.meterRegistry.get("hot.histogram").tag("le", "0.01").functionCounter().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.get("hot.histogram").tag("le", "0.1").functionCounter().count()).isEqualTo(2);
+		assertThat(this.meterRegistry.get("hot.histogram").tag("le", "+Inf").functionCounter().count()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldFormatBucketBoundariesLikePrometheus() {
+		assertThat(StripedTimer.toLe(Duration.ofNanos(100).toNanos())).isEqualTo("1e-07");
+		assertThat(StripedTimer.toLe(Duration.ofNanos(1500).toNanos())).isEqualTo("1.5e-06");
+		assertThat(StripedTimer.toLe(Duration.ofMillis(1).toNanos())).isEqualTo("0.001");
+		assertThat(StripedTimer.toLe(Duration.ofMillis(250).toNanos())).isEqualTo("0.25");
+		assertThat(StripedTimer.toLe(Duration.ofSeconds(10).toNanos())).isEqualTo("10");
+		assertThat(StripedTimer.toLe(Duration.ofDays(30).toNanos())).isEqualTo("2.592e+06");
+	}
+
+	@Test
+	void shouldMergeStripesFromConcurrentThreads() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			executor.execute(() -> {
+				for (int j = 0; j < 1000; j++) {
+					Observation.start("hot", this.observationRegistry).stop();
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.meterRegistry.get("hot").functionTimer().count()).isEqualTo(8000);
+	}
+
+	@Test
+	void shouldDelegateOtherObservations() {
+		Observation.start("cold", this.observationRegistry).stop();
+		assertThat(this.meterRegistry.get("cold").timer().count()).isEqualTo(1);
+		assertThat(this.meterRegistry.find("cold").functionTimer()).isNull();
+	}
+
+	private void record(Duration duration) {
+		Observation observation = Observation.start("hot", this.observationRegistry);
+		this.clock.add(duration);
+		observation.stop();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.benchmark.observation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.spring.actuate.autoconfigure.observation.ActiveObservations;
+import io.micrometer.spring.actuate.autoconfigure.observation.ActiveTaskTrackingMeterObservationHandler;
+import io.micrometer.spring.actuate.autoconfigure.observation.CachingMeterObservationHandler;
+import io.micrometer.spring.actuate.autoconfigure.observation.KeyValuesInterner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the cost of tracking an in-flight observation with a long task timer sample
+ * and with the active task tracker, while a number of other observations with the same
+ * name and key-values are in flight. Run with {@code -prof gc} to compare the allocation
+ * per observation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ActiveTaskTrackingBenchmark {
+
+	@Param({ "longTaskTimer", "tracker" })
+	private String active;
+
+	@Param({ "0", "1000" })
+	private int inFlight;
+
+	private ObservationRegistry observationRegistry;
+
+	private final List<Observation> observations = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		KeyValuesInterner interner = new KeyValuesInterner(1000);
+		MeterObservationHandler<Observation.Context> meterObservationHandler;
+		if ("tracker".equals(this.active)) {
+			meterObservationHandler = new ActiveTaskTrackingMeterObservationHandler(
+					new CachingMeterObservationHandler(meterRegistry, interner, false), meterRegistry,
+					new ActiveObservations(1 << 20, Collections.emptyList()));
+		}
+		else {
+			meterObservationHandler = new CachingMeterObservationHandler(meterRegistry, interner);
+		}
+		this.observationRegistry = ObservationRegistry.create();
+		this.observationRegistry.observationConfig().observationHandler(meterObservationHandler);
+		for (int i = 0; i < this.inFlight; i++) {
+			this.observations.add(createObservation().start());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.observations.forEach(Observation::stop);
+	}
+
+	@Benchmark
+	public void observe() {
+		createObservation().start().stop();
+	}
+
+	private Observation createObservation() {
+		return Observation.createNotStarted("http.server.requests", this.observationRegistry)
+				.lowCardinalityKeyValue("method", "GET").lowCardinalityKeyValue("uri", "/api/orders/{id}")
+				.lowCardinalityKeyValue("status", "200");
+	}
+
+}
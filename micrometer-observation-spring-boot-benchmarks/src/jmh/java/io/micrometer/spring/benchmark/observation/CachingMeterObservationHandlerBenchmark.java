@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.benchmark.observation;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.spring.actuate.autoconfigure.observation.CachingMeterObservationHandler;
+import io.micrometer.spring.actuate.autoconfigure.observation.KeyValuesInterner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of recording the meters of an observation with a few low cardinality
+ * key-values and one event, with the default meter observation handler and with the
+ * caching meter observation handler. The {@code none} handler records nothing and
+ * measures the observation itself. Run with {@code -prof gc} to compare the allocation
+ * per observation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CachingMeterObservationHandlerBenchmark {
+
+	@Param({ "none", "default", "caching" })
+	private String handler;
+
+	private ObservationRegistry observationRegistry;
+
+	@Setup
+	public void setup() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MeterObservationHandler<Observation.Context> meterObservationHandler;
+		if ("caching".equals(this.handler)) {
+			meterObservationHandler = new CachingMeterObservationHandler(meterRegistry, new KeyValuesInterner(1000));
+		}
+		else if ("default".equals(this.handler)) {
+			meterObservationHandler = new DefaultMeterObservationHandler(meterRegistry);
+		}
+		else {
+			// Records nothing, measures the cost of the observation itself
+			meterObservationHandler = new MeterObservationHandler<>() {
+			};
+		}
+		this.observationRegistry = ObservationRegistry.create();
+		this.observationRegistry.observationConfig().observationHandler(meterObservationHandler);
+	}
+
+	@Benchmark
+	public void observe() {
+		Observation observation = Observation.createNotStarted("http.server.requests", this.observationRegistry)
+				.lowCardinalityKeyValue("method", "GET").lowCardinalityKeyValue("uri", "/api/orders/{id}")
+				.lowCardinalityKeyValue("status", "200").start();
+		observation.event(Observation.Event.of("retry"));
+		observation.stop();
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.micrometer.spring.benchmark.observation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.observation.MeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.spring.actuate.autoconfigure.observation.StripedMeterObservationHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures how the throughput of a single hot observation scales with the number of
+ * recording threads, with a handler that records into a shared {@link Timer} and with the
+ * striped meter observation handler. Both record the same histogram buckets and neither
+ * records a long task timer, so that the difference comes from the timer state only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StripedMeterObservationHandlerBenchmark {
+
+	private static final List<Duration> BUCKETS = List.of(Duration.ofNanos(100), Duration.ofNanos(1_000),
+			Duration.ofNanos(10_000), Duration.ofMillis(1));
+
+	@Param({ "timer", "striped" })
+	private String handler;
+
+	private ObservationRegistry observationRegistry;
+
+	@Setup
+	public void setup() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		meterRegistry.config().meterFilter(new MeterFilter() {
+
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder()
+						.serviceLevelObjectives(BUCKETS.stream().mapToDouble(Duration::toNanos).toArray()).build()
+						.merge(config);
+			}
+
+		});
+		MeterObservationHandler<Observation.Context> meterObservationHandler;
+		if ("striped".equals(this.handler)) {
+			// Every observation is striped, the delegate is never called
+			meterObservationHandler = new StripedMeterObservationHandler(new MeterObservationHandler<>() {
+			}, meterRegistry, Set.of("hot"), BUCKETS, Runtime.getRuntime().availableProcessors() * 2);
+		}
+		else {
+			meterObservationHandler = new TimerMeterObservationHandler(meterRegistry);
+		}
+		this.observationRegistry = ObservationRegistry.create();
+		this.observationRegistry.observationConfig().observationHandler(meterObservationHandler);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void threads1() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public void threads2() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void threads4() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void threads8() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void threads16() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(32)
+	public void threads32() {
+		observe();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void threads64() {
+		observe();
+	}
+
+	private void observe() {
+		Observation.start("hot", this.observationRegistry).stop();
+	}
+
+	/**
+	 * Records only the timer of each observation, into a timer that is registered once.
+	 */
+	static class TimerMeterObservationHandler implements MeterObservationHandler<Observation.Context> {
+
+		private final Clock clock;
+
+		private final Timer timer;
+
+		TimerMeterObservationHandler(MeterRegistry meterRegistry) {
+			this.clock = meterRegistry.config().clock();
+			this.timer = Timer.builder("hot").tag("error", "none").register(meterRegistry);
+		}
+
+		@Override
+		public void onStart(Observation.Context context) {
+			context.put(TimerMeterObservationHandler.class, this.clock.monotonicTime());
+		}
+
+		@Override
+		public void onStop(Observation.Context context) {
+			long start = context.getRequired(TimerMeterObservationHandler.class);
+			this.timer.record(this.clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+		}
+
+	}
+
+}